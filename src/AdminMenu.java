@@ -1,3 +1,9 @@
+import java.io.PrintStream;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Paths;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
 import java.util.InputMismatchException;
 import java.util.List;
 import java.util.Optional;
@@ -9,28 +15,38 @@ public class AdminMenu {
     private final OperatorManager operatorManager;
     private final CriminalReportGenerator reportGenerator;
     private final Scanner scanner;
+    private final PrintStream out; // The console, or a remote session's socket
+
+    private static final int PAGE_SIZE = 20; // Results per page in listings and search results
+    private static final int TOP_COUNT = 10; // Groups shown per field in the statistics summary
 
     public AdminMenu(CriminalManager cm, OperatorManager om, Scanner sc) {
+        this(cm, om, sc, System.out);
+    }
+
+    public AdminMenu(CriminalManager cm, OperatorManager om, Scanner sc, PrintStream out) {
         this.criminalManager = cm;
         this.operatorManager = om;
         this.reportGenerator = new CriminalReportGenerator(); // Instantiate here
         this.scanner = sc;
+        this.out = out;
     }
 
     public void showMenu() {
         int choice;
         do {
-            System.out.println("\n------- Admin Menu -------");
-            System.out.println("1. Add Criminal");
-            System.out.println("2. View Criminals");
-            System.out.println("3. Search Criminals"); // New option
-            System.out.println("4. Delete Criminal");
-            System.out.println("5. Export Criminal Report");
-            System.out.println("6. Add Operator");
-            System.out.println("7. View Operators");
-            System.out.println("8. Delete Operator");
-            System.out.println("0. Logout");
-            System.out.print("Enter choice: ");
+            out.println("\n------- Admin Menu -------");
+            out.println("1. Add Criminal");
+            out.println("2. View Criminals");
+            out.println("3. Search Criminals"); // New option
+            out.println("4. Delete Criminal");
+            out.println("5. Export Criminal Report");
+            out.println("6. Add Operator");
+            out.println("7. View Operators");
+            out.println("8. Delete Operator");
+            out.println("9. Statistics");
+            out.println("0. Logout");
+            out.print("Enter choice: ");
 
             try {
                 choice = scanner.nextInt();
@@ -45,11 +61,12 @@ public class AdminMenu {
                     case 6: addOperator(); break;
                     case 7: viewOperators(); break;
                     case 8: deleteOperator(); break;
-                    case 0: System.out.println("Logging out admin..."); break;
-                    default: System.out.println("Invalid choice. Please try again.");
+                    case 9: showStatistics(); break;
+                    case 0: out.println("Logging out admin..."); break;
+                    default: out.println("Invalid choice. Please try again.");
                 }
             } catch (InputMismatchException e) {
-                System.out.println("Invalid input. Please enter a number.");
+                out.println("Invalid input. Please enter a number.");
                 scanner.nextLine(); // Consume invalid input
                 choice = -1; // Reset choice to continue loop
             }
@@ -57,56 +74,94 @@ public class AdminMenu {
     }
 
     private void addCriminal() {
-        System.out.println("\n-- Add New Criminal --");
-        System.out.print("Enter Name: ");
+        out.println("\n-- Add New Criminal --");
+        out.print("Enter Name: ");
         String name = scanner.nextLine();
-        System.out.print("Enter Crime Committed: ");
+        out.print("Enter Crime Committed: ");
         String crime = scanner.nextLine();
-        System.out.print("Enter Location: ");
+        out.print("Enter Location: ");
         String location = scanner.nextLine();
-        System.out.print("Enter Complainant's Name: ");
+        out.print("Enter Complainant's Name: ");
         String complainant = scanner.nextLine();
-        System.out.print("Enter FIR Description: ");
+        out.print("Enter FIR Description: ");
         String firDesc = scanner.nextLine();
+        boolean remote = SessionConsole.isRemote(); // No window can open in front of a remote operator
+        out.print(remote ? "Enter Photo File Path (on the server): " : "Enter Photo File Path (leave blank to choose it in a window): ");
+        String photo = scanner.nextLine().trim();
+        if (photo.isEmpty() && remote) {
+            out.println("A photo file path is required in a remote session. Criminal not added.");
+            return;
+        }
 
-        // Image selection happens within criminalManager.addCriminal
-        if (criminalManager.addCriminal(name, crime, location, complainant, firDesc)) {
-            System.out.println("Criminal added successfully.");
+        boolean added;
+        try {
+            added = photo.isEmpty()
+                    ? criminalManager.addCriminal(name, crime, location, complainant, firDesc) // Opens the file chooser
+                    : criminalManager.addCriminal(name, crime, location, complainant, firDesc, Paths.get(photo));
+        } catch (InvalidPathException e) {
+            out.println("Invalid photo file path: " + photo);
+            return;
+        }
+        if (added) {
+            out.println("Criminal added successfully.");
         } else {
-            System.out.println("Failed to add criminal.");
+            out.println("Failed to add criminal.");
         }
     }
 
     private void viewCriminals() {
-        System.out.println("\n------- List of Criminals -------");
-        List<Criminal> criminals = criminalManager.viewCriminals();
-        if (criminals.isEmpty()) {
-            System.out.println("No criminals found.");
-        } else {
-            criminals.forEach(System.out::println);
+        out.println("\n------- List of Criminals -------");
+        Deque<Integer> previousCursors = new ArrayDeque<>(); // Where each earlier page started, for going back
+        int cursor = 0; // Keyset cursor: the page lists ids above this one
+        while (true) {
+            int total = criminalManager.countCriminals();
+            List<Criminal> page = criminalManager.listCriminalsAfter(cursor, PAGE_SIZE);
+            if (page.isEmpty() && previousCursors.isEmpty()) {
+                out.println("No criminals found.");
+                return;
+            }
+            int pageNumber = previousCursors.size() + 1;
+            int totalPages = Math.max(pageNumber, (total + PAGE_SIZE - 1) / PAGE_SIZE);
+            out.println("--- Page " + pageNumber + " of " + totalPages + " (" + total + " criminals) ---");
+            page.forEach(out::println);
+            boolean hasNext = page.size() == PAGE_SIZE && pageNumber < totalPages;
+            boolean hasPrevious = !previousCursors.isEmpty();
+            if (!hasNext && !hasPrevious) {
+                return;
+            }
+            out.print("n = next page, p = previous page, Enter = back: ");
+            String nav = scanner.nextLine().trim();
+            if (nav.equalsIgnoreCase("n") && hasNext) {
+                previousCursors.push(cursor);
+                cursor = page.get(page.size() - 1).getId();
+            } else if (nav.equalsIgnoreCase("p") && hasPrevious) {
+                cursor = previousCursors.pop();
+            } else {
+                return;
+            }
         }
     }
 
     private void deleteCriminal() {
-        System.out.println("\n-- Delete Criminal --");
-        System.out.print("Enter ID of criminal to delete: ");
+        out.println("\n-- Delete Criminal --");
+        out.print("Enter ID of criminal to delete: ");
         try {
             int id = scanner.nextInt();
             scanner.nextLine(); // Consume newline
             if (criminalManager.deleteCriminal(id)) {
-                System.out.println("Criminal with ID " + id + " deleted successfully.");
+                out.println("Criminal with ID " + id + " deleted successfully.");
             } else {
-                System.out.println("Criminal with ID " + id + " not found or could not be deleted.");
+                out.println("Criminal with ID " + id + " not found or could not be deleted.");
             }
         } catch (InputMismatchException e) {
-            System.out.println("Invalid ID. Please enter a number.");
+            out.println("Invalid ID. Please enter a number.");
             scanner.nextLine(); // Consume invalid input
         }
     }
 
     private void exportCriminalReport() {
-        System.out.println("\n-- Export Criminal Report --");
-        System.out.print("Enter ID of criminal to export report for: ");
+        out.println("\n-- Export Criminal Report --");
+        out.print("Enter ID of criminal to export report for: ");
         try {
             int id = scanner.nextInt();
             scanner.nextLine(); // Consume newline
@@ -116,63 +171,90 @@ public class AdminMenu {
                 if (reportGenerator.generateReport(criminalOpt.get())) {
                     // Success message printed by generator
                 } else {
-                    System.out.println("Failed to generate report for criminal ID " + id + ".");
+                    out.println("Failed to generate report for criminal ID " + id + ".");
                 }
             } else {
-                System.out.println("Criminal with ID " + id + " not found.");
+                out.println("Criminal with ID " + id + " not found.");
             }
         } catch (InputMismatchException e) {
-            System.out.println("Invalid ID. Please enter a number.");
+            out.println("Invalid ID. Please enter a number.");
             scanner.nextLine(); // Consume invalid input
         }
     }
 
     private void addOperator() {
-        System.out.println("\n-- Add New Operator --");
-        System.out.print("Enter Operator Name: ");
+        out.println("\n-- Add New Operator --");
+        out.print("Enter Operator Name: ");
         String name = scanner.nextLine();
-        System.out.print("Enter Operator Password: "); // Consider using Console.readPassword() for masking
+        out.print("Enter Operator Password: "); // Consider using Console.readPassword() for masking
         String password = scanner.nextLine(); // !! INSECURE !!
 
         if (operatorManager.addOperator(name, password)) {
-            System.out.println("Operator added successfully.");
+            out.println("Operator added successfully.");
         } else {
-            System.out.println("Failed to add operator (maybe name exists?).");
+            out.println("Failed to add operator (maybe name exists?).");
         }
     }
 
     private void viewOperators() {
-        System.out.println("\n------- List of Operators -------");
+        out.println("\n------- List of Operators -------");
         List<Operator> operators = operatorManager.viewOperators();
         if (operators.isEmpty()) {
-            System.out.println("No operators found.");
+            out.println("No operators found.");
         } else {
-            operators.forEach(System.out::println);
+            operators.forEach(out::println);
         }
     }
 
     private void deleteOperator() {
-        System.out.println("\n------- Delete Operator -------");
-        System.out.print("Enter ID of operator to delete: ");
+        out.println("\n------- Delete Operator -------");
+        out.print("Enter ID of operator to delete: ");
         try {
             int id = scanner.nextInt();
             scanner.nextLine(); // Consume newline
             if (operatorManager.deleteOperator(id)) {
-                System.out.println("Operator with ID " + id + " deleted successfully.");
+                out.println("Operator with ID " + id + " deleted successfully.");
             } else {
-                System.out.println("Operator with ID " + id + " not found or could not be deleted (check restrictions).");
+                out.println("Operator with ID " + id + " not found or could not be deleted (check restrictions).");
             }
         } catch (InputMismatchException e) {
-            System.out.println("Invalid ID. Please enter a number.");
+            out.println("Invalid ID. Please enter a number.");
             scanner.nextLine(); // Consume invalid input
         }
     }
 
+    private void showStatistics() {
+        out.println("\n------- Criminal Statistics -------");
+        for (CriminalStatistics.Field field : CriminalStatistics.Field.values()) {
+            out.println("--- Top " + field.getLabel() + " (" + criminalManager.distinctCount(field) + " distinct) ---");
+            List<CriminalStatistics.Count> top = criminalManager.topCounts(field, TOP_COUNT);
+            if (top.isEmpty()) {
+                out.println("No criminals found.");
+            } else {
+                top.forEach(out::println);
+            }
+        }
+
+        out.print("Show every count for crime, location or complainant? (Enter = back): ");
+        String choice = scanner.nextLine().trim();
+        for (CriminalStatistics.Field field : CriminalStatistics.Field.values()) {
+            if (field.getLabel().equalsIgnoreCase(choice)) {
+                out.println("--- Records per " + field.getLabel() + " ---");
+                criminalManager.countBy(field).forEach(out::println);
+                return;
+            }
+        }
+        if (!choice.isEmpty()) {
+            out.println("Unknown field '" + choice + "'.");
+        }
+    }
+
     private void searchCriminals() {
-        System.out.println("\n------- Search Criminals -------");
-        System.out.println("1. Search by ID");
-        System.out.println("2. Search by Name");
-        System.out.print("Enter your choice: ");
+        out.println("\n------- Search Criminals -------");
+        out.println("1. Search by ID");
+        out.println("2. Search by Name");
+        out.println("3. Advanced Search (crime, location, complainant, FIR text)");
+        out.print("Enter your choice: ");
         try {
             int searchChoice = scanner.nextInt();
             scanner.nextLine(); // Consume newline
@@ -180,41 +262,98 @@ public class AdminMenu {
             switch (searchChoice) {
                 case 1: searchCriminalById(); break;
                 case 2: searchCriminalByName(); break;
-                default: System.out.println("Invalid search choice.");
+                case 3: advancedSearch(); break;
+                default: out.println("Invalid search choice.");
             }
         } catch (InputMismatchException e) {
-            System.out.println("Invalid input. Please enter a number.");
+            out.println("Invalid input. Please enter a number.");
             scanner.nextLine(); // Consume invalid input
         }
     }
 
     private void searchCriminalById() {
-        System.out.print("Enter Criminal ID to search: ");
+        out.print("Enter Criminal ID to search: ");
         try {
             int id = scanner.nextInt();
             scanner.nextLine(); // Consume newline
             Optional<Criminal> criminalOpt = criminalManager.findCriminalById(id);
             if (criminalOpt.isPresent()) {
-                System.out.println("--- Criminal Found ---");
-                System.out.println(criminalOpt.get());
+                out.println("--- Criminal Found ---");
+                out.println(criminalOpt.get());
             } else {
-                System.out.println("Criminal with ID " + id + " not found.");
+                out.println("Criminal with ID " + id + " not found.");
             }
         } catch (InputMismatchException e) {
-            System.out.println("Invalid ID. Please enter a number.");
+            out.println("Invalid ID. Please enter a number.");
             scanner.nextLine(); // Consume invalid input
         }
     }
 
     private void searchCriminalByName() {
-        System.out.print("Enter Criminal Name to search: ");
+        out.print("Enter Criminal Name to search: ");
         String name = scanner.nextLine();
         List<Criminal> results = criminalManager.findCriminalByName(name);
         if (!results.isEmpty()) {
-            System.out.println("--- Search Results ---");
-            results.forEach(System.out::println);
+            out.println("--- Search Results ---");
+            results.forEach(out::println);
         } else {
-            System.out.println("No criminals found with the name '" + name + "'.");
+            out.println("No criminals found with the name '" + name + "'.");
+        }
+    }
+
+    private void advancedSearch() {
+        out.println("Leave a field blank to ignore it.");
+        out.print("Crime Committed: ");
+        String crime = scanner.nextLine().trim();
+        out.print("Location: ");
+        String location = scanner.nextLine().trim();
+        out.print("Complainant's Name: ");
+        String complainant = scanner.nextLine().trim();
+        out.print("Name contains: ");
+        String name = scanner.nextLine().trim();
+        out.print("FIR Description keywords: ");
+        String keywords = scanner.nextLine().trim();
+
+        List<CriminalQuery> clauses = new ArrayList<>();
+        if (!crime.isEmpty()) clauses.add(CriminalQuery.crimeIs(crime));
+        if (!location.isEmpty()) clauses.add(CriminalQuery.locationIs(location));
+        if (!complainant.isEmpty()) clauses.add(CriminalQuery.complainantIs(complainant));
+        if (!name.isEmpty()) clauses.add(CriminalQuery.nameContains(name));
+        if (!keywords.isEmpty()) clauses.add(CriminalQuery.firMentions(keywords));
+        if (clauses.isEmpty()) {
+            out.println("No search criteria entered.");
+            return;
+        }
+
+        out.print("Match all criteria or any? (all/any): ");
+        String mode = scanner.nextLine().trim();
+        CriminalQuery query = mode.equalsIgnoreCase("any") ? CriminalQuery.or(clauses) : CriminalQuery.and(clauses);
+        showSearchPages(query);
+    }
+
+    private void showSearchPages(CriminalQuery query) {
+        int pageNumber = 1;
+        while (true) {
+            Page<Criminal> page = criminalManager.search(query, pageNumber, PAGE_SIZE);
+            if (page.getTotalCount() == 0) {
+                out.println("No criminals matched " + query + ".");
+                return;
+            }
+            out.println("--- Search Results (page " + page.getPageNumber() + " of " + page.getTotalPages()
+                    + ", " + page.getTotalCount() + " matches) ---");
+            page.getItems().forEach(out::println);
+            if (!page.hasNextPage() && !page.hasPreviousPage()) {
+                return;
+            }
+            out.print("n = next page, p = previous page, Enter = back: ");
+            String nav = scanner.nextLine().trim();
+            if (nav.equalsIgnoreCase("n") && page.hasNextPage()) {
+                pageNumber++;
+            } else if (nav.equalsIgnoreCase("p") && page.hasPreviousPage()) {
+                pageNumber--;
+            } else {
+                return;
+            }
         }
     }
 }
@@ -0,0 +1,144 @@
+import java.io.IOException;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+// Load-test harness for CriminalApiServer: closed-loop clients issue id lookups over ids 1..maxId
+// (with one name search in eight) for a fixed time, then throughput and latency percentiles are printed.
+public class ApiLoadTest {
+    private static final long WARM_UP_MILLIS = 3000;
+
+    private final URI baseUri;
+    private final String authorization;
+    private final int clients;
+    private final long durationMillis;
+    private final int maxId;
+    private final HttpClient httpClient;
+
+    public ApiLoadTest(String baseUrl, String username, String password, int clients, long durationMillis, int maxId) {
+        if (clients < 1 || durationMillis < 1 || maxId < 1) {
+            throw new IllegalArgumentException("Client count, duration and max id must be positive");
+        }
+        this.baseUri = URI.create(baseUrl.endsWith("/") ? baseUrl : baseUrl + "/");
+        this.authorization = "Basic " + Base64.getEncoder().encodeToString((username + ":" + password).getBytes(StandardCharsets.UTF_8));
+        this.clients = clients;
+        this.durationMillis = durationMillis;
+        this.maxId = maxId;
+        this.httpClient = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(5)).build();
+    }
+
+    public void run() throws IOException, InterruptedException {
+        // A few probe lookups supply name fragments for the search requests (and check the credentials)
+        List<String> names = new ArrayList<>();
+        for (int id = 1; id <= Math.min(maxId, 50); id++) {
+            HttpResponse<String> probe = send("api/criminals/" + id);
+            if (probe.statusCode() == 401) {
+                System.out.println("The server rejected the credentials.");
+                return;
+            }
+            if (probe.statusCode() == 200) {
+                Object name = Json.parseObject(probe.body()).get("name");
+                if (name instanceof String && ((String) name).length() >= 3) {
+                    names.add(((String) name).substring(0, 3));
+                }
+            }
+        }
+
+        // Let both JVMs warm up (JIT, connection pool) before anything is measured
+        runWorkers(names.toArray(new String[0]), Math.min(WARM_UP_MILLIS, durationMillis));
+        printSummary(runWorkers(names.toArray(new String[0]), durationMillis));
+    }
+
+    private Worker[] runWorkers(String[] names, long millis) throws InterruptedException {
+        Worker[] workers = new Worker[clients];
+        long deadline = System.nanoTime() + millis * 1_000_000L;
+        for (int i = 0; i < clients; i++) {
+            workers[i] = new Worker(names, deadline);
+            workers[i].start();
+        }
+        for (Worker worker : workers) {
+            worker.join();
+        }
+        return workers;
+    }
+
+    private final class Worker extends Thread {
+        private final String[] names;
+        private final long deadline;
+        private long[] latencies = new long[1024];
+        private int count;
+        private int errors;
+
+        Worker(String[] names, long deadline) {
+            this.names = names;
+            this.deadline = deadline;
+        }
+
+        @Override
+        public void run() {
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            while (System.nanoTime() < deadline) {
+                String path = names.length > 0 && random.nextInt(8) == 0
+                        ? "api/criminals?name=" + encode(names[random.nextInt(names.length)]) + "&size=10"
+                        : "api/criminals/" + (1 + random.nextInt(maxId));
+                long start = System.nanoTime();
+                try {
+                    int status = send(path).statusCode();
+                    if (status != 200 && status != 404) errors++;
+                } catch (IOException e) {
+                    errors++;
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+                if (count == latencies.length) latencies = Arrays.copyOf(latencies, count * 2);
+                latencies[count++] = System.nanoTime() - start;
+            }
+        }
+    }
+
+    private HttpResponse<String> send(String path) throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder(baseUri.resolve(path))
+                .header("Authorization", authorization).timeout(Duration.ofSeconds(30)).GET().build();
+        return httpClient.send(request, HttpResponse.BodyHandlers.ofString());
+    }
+
+    private static String encode(String value) {
+        return URLEncoder.encode(value, StandardCharsets.UTF_8);
+    }
+
+    private void printSummary(Worker[] workers) {
+        int total = 0;
+        int errors = 0;
+        for (Worker worker : workers) {
+            total += worker.count;
+            errors += worker.errors;
+        }
+        long[] all = new long[total];
+        int pos = 0;
+        for (Worker worker : workers) {
+            System.arraycopy(worker.latencies, 0, all, pos, worker.count);
+            pos += worker.count;
+        }
+        Arrays.sort(all);
+        double seconds = durationMillis / 1000.0;
+        System.out.println("\n------- API Load Test -------");
+        System.out.printf("Requests: %d (%d errors) from %d clients in %.1f s%n", total, errors, clients, seconds);
+        System.out.printf("Throughput: %.0f requests/s%n", total / seconds);
+        if (total > 0) {
+            System.out.printf("Latency p50: %.2f ms, p99: %.2f ms, p99.9: %.2f ms, max: %.2f ms%n",
+                    BatchReportRunner.percentile(all, 0.50), BatchReportRunner.percentile(all, 0.99),
+                    BatchReportRunner.percentile(all, 0.999), all[total - 1] / 1_000_000.0);
+        }
+    }
+}
@@ -0,0 +1,53 @@
+import java.io.BufferedOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+// Replaces a file so that, even across a crash or power loss, readers find either the complete old
+// content or the complete new content: the data goes to a temp file beside the target, is fsynced,
+// atomically renamed over the target, and then the directory entry itself is fsynced.
+final class AtomicFile {
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    interface Writer {
+        void writeTo(OutputStream out) throws IOException;
+    }
+
+    private AtomicFile() {
+    }
+
+    static void write(Path target, Writer writer) throws IOException {
+        Path absolute = target.toAbsolutePath();
+        Path tempPath = absolute.resolveSibling(absolute.getFileName() + ".tmp");
+        try (FileOutputStream fileOut = new FileOutputStream(tempPath.toFile())) {
+            OutputStream out = new BufferedOutputStream(fileOut, BUFFER_SIZE);
+            writer.writeTo(out);
+            out.flush();
+            fileOut.getFD().sync(); // Contents are on disk before the rename makes them visible
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(tempPath);
+            throw e;
+        }
+        try {
+            Files.move(tempPath, absolute, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(tempPath, absolute, StandardCopyOption.REPLACE_EXISTING); // Same directory, so only odd filesystems get here
+        }
+        syncDirectory(absolute.getParent());
+    }
+
+    // Makes the rename itself durable; not supported on every platform (e.g. Windows), where it is skipped
+    private static void syncDirectory(Path dir) {
+        try (FileChannel channel = FileChannel.open(dir, StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch (IOException e) {
+            // Best effort: the file contents are already synced
+        }
+    }
+}
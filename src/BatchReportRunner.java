@@ -0,0 +1,82 @@
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Renders many criminal reports concurrently on a bounded worker pool (no browser is opened)
+// and prints throughput and latency figures when the batch is done.
+public class BatchReportRunner {
+    private final CriminalReportGenerator reportGenerator;
+    private final int threads;
+
+    public BatchReportRunner(CriminalReportGenerator reportGenerator, int threads) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("Thread count must be positive");
+        }
+        this.reportGenerator = reportGenerator;
+        this.threads = threads;
+    }
+
+    // Returns the number of reports written
+    public int run(List<Criminal> criminals) {
+        if (criminals.isEmpty()) {
+            System.out.println("No criminals selected for report export.");
+            return 0;
+        }
+
+        long[] latencies = new long[criminals.size()];
+        AtomicInteger written = new AtomicInteger();
+        AtomicInteger failed = new AtomicInteger();
+
+        // Bounded queue + caller-runs keeps memory flat however many records are queued
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(threads * 4), new ThreadPoolExecutor.CallerRunsPolicy());
+
+        long batchStart = System.nanoTime();
+        for (int i = 0; i < criminals.size(); i++) {
+            int slot = i;
+            Criminal criminal = criminals.get(i);
+            executor.execute(() -> {
+                long start = System.nanoTime();
+                try {
+                    reportGenerator.writeReport(criminal);
+                    written.incrementAndGet();
+                } catch (IOException | RuntimeException e) {
+                    failed.incrementAndGet();
+                    System.err.println("Report for criminal ID " + criminal.getId() + " failed: " + e.getMessage());
+                }
+                latencies[slot] = System.nanoTime() - start;
+            });
+        }
+        executor.shutdown();
+        try {
+            executor.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            executor.shutdownNow();
+        }
+        long elapsed = System.nanoTime() - batchStart;
+
+        printSummary(written.get(), failed.get(), elapsed, latencies);
+        return written.get();
+    }
+
+    private void printSummary(int written, int failed, long elapsedNanos, long[] latencies) {
+        Arrays.sort(latencies);
+        double seconds = elapsedNanos / 1_000_000_000.0;
+        System.out.println("\n------- Batch Report Export -------");
+        System.out.printf("Reports written: %d (%d failed) using %d threads%n", written, failed, threads);
+        System.out.printf("Elapsed: %.2f s, throughput: %.1f reports/s%n", seconds, written / Math.max(seconds, 0.001));
+        System.out.printf("Latency p50: %.2f ms, p99: %.2f ms, max: %.2f ms%n",
+                percentile(latencies, 0.50), percentile(latencies, 0.99), latencies[latencies.length - 1] / 1_000_000.0);
+    }
+
+    // Value at fraction p of an ascending array of nanosecond latencies, in milliseconds
+    static double percentile(long[] sorted, double p) {
+        int index = (int) Math.ceil(p * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(index, sorted.length - 1))] / 1_000_000.0;
+    }
+}
@@ -0,0 +1,315 @@
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+// Headless bulk import of criminal records from CSV (with a header row) or JSON Lines files.
+// The file is read in chunks of batchSize records; each chunk is parsed and validated in parallel,
+// given a block of ids, has its images copied, and is committed with a single journal flush.
+public class BulkImporter {
+    private static final int MAX_REPORTED_ERRORS = 20;
+
+    private final CriminalManager criminalManager;
+    private final int batchSize;
+    private int reportedErrors = 0;
+
+    public BulkImporter(CriminalManager criminalManager, int batchSize) {
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("Batch size must be positive");
+        }
+        this.criminalManager = criminalManager;
+        this.batchSize = batchSize;
+    }
+
+    // Returns the number of records imported
+    public int importFile(Path file) throws IOException {
+        boolean jsonLines = file.getFileName().toString().toLowerCase(Locale.ROOT).matches(".*\\.(jsonl|ndjson|json)$");
+        Path baseDir = file.toAbsolutePath().getParent(); // Relative image paths resolve against the import file
+        int imported = 0;
+        int rejected = 0;
+        long start = System.nanoTime();
+
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            RecordSource source = new RecordSource(reader);
+            Map<String, Integer> columns = null;
+            if (!jsonLines) {
+                RawRecord header = source.next(false);
+                if (header == null) {
+                    System.out.println("Import file " + file + " is empty.");
+                    return 0;
+                }
+                columns = readHeader(parseCsv(header.text));
+            }
+
+            while (true) {
+                List<RawRecord> chunk = new ArrayList<>(batchSize);
+                RawRecord record;
+                while (chunk.size() < batchSize && (record = source.next(!jsonLines)) != null) {
+                    chunk.add(record);
+                }
+                if (chunk.isEmpty()) break;
+
+                Map<String, Integer> csvColumns = columns;
+                List<Row> rows = chunk.parallelStream()
+                        .map(raw -> jsonLines ? parseJsonLine(raw) : parseCsvRow(raw, csvColumns))
+                        .map(row -> validate(row, baseDir))
+                        .collect(Collectors.toList());
+
+                List<Row> valid = new ArrayList<>(rows.size());
+                for (Row row : rows) {
+                    if (row.error == null) {
+                        valid.add(row);
+                    } else {
+                        reportError(row);
+                        rejected++;
+                    }
+                }
+                int committed = commitBatch(valid);
+                rejected += valid.size() - committed;
+                imported += committed;
+            }
+        }
+
+        double seconds = (System.nanoTime() - start) / 1_000_000_000.0;
+        System.out.printf("Import of %s finished: %d imported, %d rejected in %.1f s (%.0f records/s).%n",
+                file, imported, rejected, seconds, imported / Math.max(seconds, 0.001));
+        return imported;
+    }
+
+    private int commitBatch(List<Row> rows) {
+        if (rows.isEmpty()) return 0;
+        int firstId = criminalManager.reserveIds(rows.size());
+        List<Criminal> batch = IntStream.range(0, rows.size()).parallel()
+                .mapToObj(i -> toCriminal(rows.get(i), firstId + i))
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList());
+        if (!criminalManager.addCriminals(batch)) {
+            System.err.println("Failed to persist a batch of " + batch.size() + " records.");
+            for (Criminal criminal : batch) {
+                criminalManager.discardImage(criminal.getImagePath(), criminal.getId()); // Copied for this batch
+            }
+            return 0;
+        }
+        return batch.size();
+    }
+
+    private Criminal toCriminal(Row row, int id) {
+        String imagePath = null;
+        if (row.imageSource != null) {
+            imagePath = criminalManager.copyImage(row.imageSource);
+            if (imagePath == null) {
+                row.error = "could not copy image " + row.imageSource;
+                reportError(row);
+                return null;
+            }
+        }
+        return new Criminal(id, row.name, row.crime, row.location, row.complainant, row.firDescription, imagePath);
+    }
+
+    private synchronized void reportError(Row row) {
+        if (reportedErrors < MAX_REPORTED_ERRORS) {
+            System.err.println("Record at line " + row.line + " rejected: " + row.error);
+        } else if (reportedErrors == MAX_REPORTED_ERRORS) {
+            System.err.println("Further rejected records are not listed individually.");
+        }
+        reportedErrors++;
+    }
+
+    // --- Parsing ---
+
+    private static Map<String, Integer> readHeader(List<String> header) {
+        Map<String, Integer> columns = new HashMap<>();
+        for (int i = 0; i < header.size(); i++) {
+            String field = canonicalField(header.get(i));
+            if (field != null) {
+                columns.put(field, i);
+            }
+        }
+        if (!columns.containsKey("name")) {
+            throw new IllegalArgumentException("CSV header must contain a 'name' column");
+        }
+        return columns;
+    }
+
+    // Maps header/JSON keys such as "Crime Committed" or "fir_description" onto field names
+    private static String canonicalField(String key) {
+        String k = key.toLowerCase(Locale.ROOT).replaceAll("[^a-z]", "");
+        switch (k) {
+            case "name": return "name";
+            case "crime": case "crimecommitted": return "crime";
+            case "location": return "location";
+            case "complainant": case "complainantname": return "complainant";
+            case "fir": case "firdescription": return "fir";
+            case "image": case "imagepath": return "image";
+            default: return null;
+        }
+    }
+
+    private static Row parseCsvRow(RawRecord raw, Map<String, Integer> columns) {
+        Row row = new Row(raw.line);
+        try {
+            List<String> values = parseCsv(raw.text);
+            Map<String, String> fields = new HashMap<>();
+            columns.forEach((field, index) -> fields.put(field, index < values.size() ? values.get(index) : null));
+            row.fill(fields);
+        } catch (IllegalArgumentException e) {
+            row.error = e.getMessage();
+        }
+        return row;
+    }
+
+    private static Row parseJsonLine(RawRecord raw) {
+        Row row = new Row(raw.line);
+        try {
+            Map<String, String> fields = new HashMap<>();
+            for (Map.Entry<String, Object> entry : Json.parseObject(raw.text).entrySet()) {
+                String field = canonicalField(entry.getKey());
+                if (field != null && entry.getValue() != null) {
+                    fields.put(field, entry.getValue().toString());
+                }
+            }
+            row.fill(fields);
+        } catch (IllegalArgumentException e) {
+            row.error = "invalid JSON: " + e.getMessage();
+        }
+        return row;
+    }
+
+    // RFC 4180 style: comma separated, double quotes around fields, "" for a literal quote
+    static List<String> parseCsv(String text) {
+        List<String> values = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (quoted) {
+                if (c == '"') {
+                    if (i + 1 < text.length() && text.charAt(i + 1) == '"') {
+                        field.append('"');
+                        i++;
+                    } else {
+                        quoted = false;
+                    }
+                } else {
+                    field.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                values.add(field.toString());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        if (quoted) {
+            throw new IllegalArgumentException("unterminated quoted field");
+        }
+        values.add(field.toString());
+        return values;
+    }
+
+    private static Row validate(Row row, Path baseDir) {
+        if (row.error != null) return row;
+        if (row.name == null || row.name.trim().isEmpty()) {
+            row.error = "name is required";
+        } else if (row.crime == null || row.crime.trim().isEmpty()) {
+            row.error = "crime is required";
+        } else if (row.imageSource != null) {
+            Path image = baseDir.resolve(row.imageSource);
+            if (!Files.isRegularFile(image)) {
+                row.error = "image not found: " + image;
+            } else {
+                row.imageSource = image;
+            }
+        }
+        return row;
+    }
+
+    // --- Record splitting ---
+
+    private static final class RawRecord {
+        final int line;
+        final String text;
+
+        RawRecord(int line, String text) {
+            this.line = line;
+            this.text = text;
+        }
+    }
+
+    // Hands out one logical record at a time; CSV records may span lines inside quoted fields
+    private static final class RecordSource {
+        private final BufferedReader reader;
+        private int lineNumber = 0;
+
+        RecordSource(BufferedReader reader) {
+            this.reader = reader;
+        }
+
+        RawRecord next(boolean csv) throws IOException {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                if (line.trim().isEmpty()) continue;
+                int startLine = lineNumber;
+                if (csv) {
+                    StringBuilder record = new StringBuilder(line);
+                    int quotes = countQuotes(line); // Only each appended line is scanned, not the whole record
+                    while (quotes % 2 != 0 && (line = reader.readLine()) != null) {
+                        lineNumber++;
+                        record.append('\n').append(line);
+                        quotes += countQuotes(line);
+                    }
+                    return new RawRecord(startLine, record.toString());
+                }
+                return new RawRecord(startLine, line);
+            }
+            return null;
+        }
+
+        private static int countQuotes(String text) {
+            int quotes = 0;
+            for (int i = 0; i < text.length(); i++) {
+                if (text.charAt(i) == '"') quotes++;
+            }
+            return quotes;
+        }
+    }
+
+    private static final class Row {
+        final int line;
+        String name;
+        String crime;
+        String location;
+        String complainant;
+        String firDescription;
+        Path imageSource;
+        String error;
+
+        Row(int line) {
+            this.line = line;
+        }
+
+        void fill(Map<String, String> fields) {
+            name = fields.get("name");
+            crime = fields.get("crime");
+            location = fields.get("location");
+            complainant = fields.get("complainant");
+            firDescription = fields.get("fir");
+            String image = fields.get("image");
+            if (image != null && !image.trim().isEmpty()) {
+                imageSource = Path.of(image.trim());
+            }
+        }
+    }
+}
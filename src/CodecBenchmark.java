@@ -0,0 +1,118 @@
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+// Compares the legacy Java serialization of the criminal list with RecordCodec on synthetic records:
+// encoded size, write time, and load time - both a full decode and the lazy memory-mapped load that
+// CriminalManager uses at startup. Each timing is the best of the given number of rounds.
+public class CodecBenchmark {
+    private static final String[] CRIMES = {"Theft", "Burglary", "Robbery", "Assault", "Fraud", "Forgery",
+            "Arson", "Vandalism", "Smuggling", "Extortion", "Kidnapping", "Cybercrime"};
+
+    private final int recordCount;
+    private final int rounds;
+
+    public CodecBenchmark(int recordCount, int rounds) {
+        if (recordCount < 1 || rounds < 1) {
+            throw new IllegalArgumentException("Record count and rounds must be positive");
+        }
+        this.recordCount = recordCount;
+        this.rounds = rounds;
+    }
+
+    public void run() throws IOException {
+        List<Criminal> records = syntheticRecords();
+        System.out.println("\n------- Codec Benchmark -------");
+        System.out.printf("%d records, best of %d rounds%n", recordCount, rounds);
+
+        byte[] serialized = null;
+        byte[] encoded = null;
+        long serializeWrite = Long.MAX_VALUE, serializeRead = Long.MAX_VALUE;
+        long codecWrite = Long.MAX_VALUE, codecRead = Long.MAX_VALUE, mappedLoad = Long.MAX_VALUE;
+        Path file = Files.createTempFile("codec-bench", ".dat");
+        try {
+            for (int round = 0; round < rounds; round++) {
+                long start = System.nanoTime();
+                serialized = serialize(records);
+                serializeWrite = Math.min(serializeWrite, System.nanoTime() - start);
+
+                start = System.nanoTime();
+                int loaded = deserialize(serialized).size();
+                serializeRead = Math.min(serializeRead, System.nanoTime() - start);
+                check(loaded);
+
+                start = System.nanoTime();
+                ByteArrayOutputStream out = new ByteArrayOutputStream();
+                RecordCodec.writeCriminals(out, records);
+                encoded = out.toByteArray();
+                codecWrite = Math.min(codecWrite, System.nanoTime() - start);
+
+                start = System.nanoTime();
+                loaded = RecordCodec.readCriminals(new ByteArrayInputStream(encoded)).size();
+                codecRead = Math.min(codecRead, System.nanoTime() - start);
+                check(loaded);
+
+                Files.write(file, encoded);
+                start = System.nanoTime();
+                loaded = MappedCriminalFile.open(file).loadCriminals().size();
+                mappedLoad = Math.min(mappedLoad, System.nanoTime() - start);
+                check(loaded);
+            }
+        } finally {
+            Files.deleteIfExists(file);
+        }
+
+        System.out.printf("%-24s %12s %12s %12s%n", "Format", "Size", "Write", "Load");
+        System.out.printf("%-24s %10d B %9.1f ms %9.1f ms%n", "Java serialization", serialized.length,
+                serializeWrite / 1e6, serializeRead / 1e6);
+        System.out.printf("%-24s %10d B %9.1f ms %9.1f ms%n", "RecordCodec (decode)", encoded.length,
+                codecWrite / 1e6, codecRead / 1e6);
+        System.out.printf("%-24s %12s %12s %9.1f ms%n", "RecordCodec (mapped)", "", "", mappedLoad / 1e6);
+        System.out.printf("Size: %.0f%% of serialization; load: %.1fx faster decoded, %.1fx faster mapped%n",
+                100.0 * encoded.length / serialized.length,
+                (double) serializeRead / codecRead, (double) serializeRead / mappedLoad);
+    }
+
+    private List<Criminal> syntheticRecords() {
+        Random random = new Random(42); // Same records on every run
+        List<Criminal> records = new ArrayList<>(recordCount);
+        for (int id = 1; id <= recordCount; id++) {
+            records.add(new Criminal(id, "Suspect " + id, CRIMES[random.nextInt(CRIMES.length)],
+                    "District " + random.nextInt(60), "Complainant " + random.nextInt(recordCount),
+                    "Reported at " + random.nextInt(24) + ":00; items recovered: " + random.nextInt(10)
+                            + ". Witness statements on file " + random.nextInt(100_000) + ".",
+                    "images/blobs/" + Long.toHexString(random.nextLong()) + ".jpg"));
+        }
+        return records;
+    }
+
+    private static byte[] serialize(List<Criminal> records) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(new ArrayList<>(records));
+        }
+        return bytes.toByteArray();
+    }
+
+    @SuppressWarnings("unchecked")
+    private static List<Criminal> deserialize(byte[] bytes) throws IOException {
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes))) {
+            return (List<Criminal>) in.readObject();
+        } catch (ClassNotFoundException e) {
+            throw new IOException(e);
+        }
+    }
+
+    private void check(int loaded) throws IOException {
+        if (loaded != recordCount) {
+            throw new IOException("Loaded " + loaded + " of " + recordCount + " records");
+        }
+    }
+}
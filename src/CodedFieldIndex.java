@@ -0,0 +1,62 @@
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+// Exact-match (case-insensitive) index for a dictionary-encoded field (see FieldDictionary).
+// Posting lists are kept per code, so adding or removing a record indexes an array by its int code instead of
+// hashing its string; a query value is resolved once to the codes spelling it, whatever their case.
+public class CodedFieldIndex implements ExactMatchIndex {
+    private final FieldDictionary dictionary;
+    private PostingList[] postings = new PostingList[16]; // By code
+    private final Map<String, int[]> codesByValue = new HashMap<>(); // Normalized value -> codes seen with it
+
+    public CodedFieldIndex(FieldDictionary dictionary) {
+        this.dictionary = dictionary;
+    }
+
+    public void add(int id, int code) {
+        if (code >= postings.length) {
+            postings = Arrays.copyOf(postings, Math.max(code + 1, postings.length * 2));
+        }
+        PostingList list = postings[code];
+        if (list == null) {
+            list = postings[code] = new PostingList();
+            codesByValue.merge(NameIndex.normalize(dictionary.decode(code)), new int[]{code}, CodedFieldIndex::concat);
+        }
+        list.add(id);
+    }
+
+    public void remove(int id, int code) {
+        if (code < postings.length && postings[code] != null) {
+            postings[code].remove(id);
+        }
+    }
+
+    @Override
+    public int[] lookup(String value) {
+        int[] result = new int[0];
+        for (int code : codes(value)) {
+            int[] ids = postings[code].toArray();
+            result = result.length == 0 ? ids : PostingList.union(result, ids);
+        }
+        return result;
+    }
+
+    @Override
+    public boolean contains(String value, int id) {
+        for (int code : codes(value)) {
+            if (postings[code].contains(id)) return true;
+        }
+        return false;
+    }
+
+    private int[] codes(String value) {
+        return codesByValue.getOrDefault(NameIndex.normalize(value), new int[0]);
+    }
+
+    private static int[] concat(int[] a, int[] b) {
+        int[] joined = Arrays.copyOf(a, a.length + b.length);
+        System.arraycopy(b, 0, joined, a.length, b.length);
+        return joined;
+    }
+}
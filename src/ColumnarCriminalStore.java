@@ -0,0 +1,210 @@
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+// Column-oriented criminal storage that keeps the string data off the Java heap (-Dcriminals.store=columnar).
+// The heap holds only two columns - the id and the arena offset of each slot - plus the IntIndex from id to slot.
+// Each record is kept in its RecordCodec encoding (UTF-8 strings, dictionary codes for crime and location) in
+// direct ByteBuffer chunks, and a Criminal is decoded from there whenever one is asked for, so callers get
+// short-lived copies instead of resident objects.
+// Deletes leave tombstones; the columns and the arena are compacted once tombstones outnumber live records.
+public class ColumnarCriminalStore implements RecordStore<Criminal> {
+    private static final int CHUNK_SIZE = 4 * 1024 * 1024;
+    private static final long DELETED = -1;
+
+    private int[] ids;
+    private long[] offsets; // Chunk number in the high 32 bits, position in the chunk in the low 32; DELETED for tombstones
+    private int slotCount = 0;
+    private IntIndex index;
+    private List<ByteBuffer> chunks = new ArrayList<>();
+    private long arenaBytes = 0;
+    private int tombstones = 0;
+    private final ByteArrayOutputStream scratch = new ByteArrayOutputStream(256);
+
+    public ColumnarCriminalStore(List<Criminal> records) {
+        int capacity = Math.max(16, records.size());
+        this.ids = new int[capacity];
+        this.offsets = new long[capacity];
+        this.index = new IntIndex(records.size());
+        for (Criminal record : records) {
+            add(record);
+        }
+    }
+
+    @Override
+    public void add(Criminal record) {
+        int id = record.getId();
+        long offset = append(ByteBuffer.wrap(encode(record)));
+        int existing = index.get(id);
+        if (existing != IntIndex.MISSING) {
+            offsets[existing] = DELETED;
+            tombstones++;
+        }
+        if (slotCount == ids.length) {
+            ids = Arrays.copyOf(ids, slotCount * 2);
+            offsets = Arrays.copyOf(offsets, slotCount * 2);
+        }
+        ids[slotCount] = id;
+        offsets[slotCount] = offset;
+        index.put(id, slotCount++);
+    }
+
+    @Override
+    public Criminal get(int id) {
+        int slot = index.get(id);
+        return slot == IntIndex.MISSING ? null : materialize(slot);
+    }
+
+    @Override
+    public boolean contains(int id) {
+        return index.containsKey(id);
+    }
+
+    @Override
+    public Criminal remove(int id) {
+        int slot = index.remove(id);
+        if (slot == IntIndex.MISSING) {
+            return null;
+        }
+        Criminal removed = materialize(slot);
+        offsets[slot] = DELETED;
+        tombstones++;
+        if (tombstones > 16 && tombstones > index.size()) {
+            compactSlots();
+        }
+        return removed;
+    }
+
+    @Override
+    public void clear() {
+        ids = new int[16];
+        offsets = new long[ids.length];
+        slotCount = 0;
+        index = new IntIndex();
+        chunks = new ArrayList<>(); // The old chunks are freed once unreachable
+        arenaBytes = 0;
+        tombstones = 0;
+    }
+
+    @Override
+    public int size() {
+        return index.size();
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return index.size() == 0;
+    }
+
+    @Override
+    public void forEach(Consumer<? super Criminal> action) {
+        for (int slot = 0; slot < slotCount; slot++) {
+            if (offsets[slot] != DELETED) {
+                action.accept(materialize(slot));
+            }
+        }
+    }
+
+    @Override
+    public Stream<Criminal> stream() {
+        return IntStream.range(0, slotCount).filter(slot -> offsets[slot] != DELETED).mapToObj(this::materialize);
+    }
+
+    @Override
+    public List<Criminal> toList() {
+        List<Criminal> copy = new ArrayList<>(index.size());
+        forEach(copy::add);
+        return copy;
+    }
+
+    // Direct memory held by the arena, including space left behind by deleted records
+    public long offHeapBytes() {
+        return arenaBytes;
+    }
+
+    // Encoded record payload; records still backed by a mapped snapshot are copied without decoding
+    private byte[] encode(Criminal record) {
+        scratch.reset();
+        try {
+            if (!record.copyEncodedTo(scratch)) {
+                RecordCodec.encodeCodedCriminal(record, scratch);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e); // Not thrown by an in-memory stream
+        }
+        return scratch.toByteArray();
+    }
+
+    // Appends the remaining bytes of payload to the arena, length-prefixed, and returns their offset
+    private long append(ByteBuffer payload) {
+        int length = payload.remaining();
+        int needed = RecordCodec.varIntSize(length) + length;
+        ByteBuffer chunk = chunks.isEmpty() ? null : chunks.get(chunks.size() - 1);
+        if (chunk == null || chunk.remaining() < needed) {
+            chunk = ByteBuffer.allocateDirect(Math.max(CHUNK_SIZE, needed));
+            chunks.add(chunk);
+            arenaBytes += chunk.capacity();
+        }
+        long offset = ((long) (chunks.size() - 1) << 32) | chunk.position();
+        for (int value = length; ; value >>>= 7) { // Varint, as in RecordCodec.writeVarInt
+            if ((value & ~0x7F) == 0) {
+                chunk.put((byte) value);
+                break;
+            }
+            chunk.put((byte) ((value & 0x7F) | 0x80));
+        }
+        chunk.put(payload);
+        return offset;
+    }
+
+    // A private view of the arena covering just the payload at offset
+    private static ByteBuffer payloadAt(List<ByteBuffer> chunks, long offset) throws IOException {
+        ByteBuffer view = chunks.get((int) (offset >>> 32)).duplicate();
+        view.position((int) offset);
+        int length = RecordCodec.readVarInt(view);
+        view.limit(view.position() + length);
+        return view;
+    }
+
+    private Criminal materialize(int slot) {
+        try {
+            return RecordCodec.decodeCodedCriminal(payloadAt(chunks, offsets[slot]));
+        } catch (IOException | RuntimeException e) {
+            throw new IllegalStateException("Corrupt off-heap record in slot " + slot, e);
+        }
+    }
+
+    // Copies the live records into fresh columns and a fresh arena; the old chunks are freed once unreachable
+    private void compactSlots() {
+        int live = index.size();
+        int[] oldIds = ids;
+        long[] oldOffsets = offsets;
+        int oldCount = slotCount;
+        List<ByteBuffer> oldChunks = chunks;
+
+        ids = new int[Math.max(16, live)];
+        offsets = new long[ids.length];
+        slotCount = 0;
+        index = new IntIndex(live);
+        chunks = new ArrayList<>();
+        arenaBytes = 0;
+        tombstones = 0;
+        for (int slot = 0; slot < oldCount; slot++) {
+            if (oldOffsets[slot] == DELETED) continue;
+            try {
+                offsets[slotCount] = append(payloadAt(oldChunks, oldOffsets[slot]));
+            } catch (IOException | RuntimeException e) {
+                throw new IllegalStateException("Corrupt off-heap record in slot " + slot, e);
+            }
+            ids[slotCount] = oldIds[slot];
+            index.put(oldIds[slot], slotCount++);
+        }
+    }
+}
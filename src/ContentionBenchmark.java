@@ -0,0 +1,152 @@
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Stream;
+
+// Measures read throughput of a shared CriminalManager at 1, 2, 4 ... maxThreads reader threads.
+// With writes enabled, one extra thread keeps adding and deleting a scratch record (no image) for the
+// whole run, so readers contend with a writer that journals every change. Writes go to a scratch copy of the
+// records under data/contention-bench, which is deleted afterwards; the store being measured is only read.
+public class ContentionBenchmark {
+    private static final String SCRATCH_DIR = "data/contention-bench";
+
+    private final CriminalManager criminalManager;
+    private final int maxThreads;
+    private final long stepMillis;
+    private final boolean withWriter;
+
+    public ContentionBenchmark(CriminalManager criminalManager, int maxThreads, long stepMillis, boolean withWriter) {
+        if (maxThreads < 1 || stepMillis < 1) {
+            throw new IllegalArgumentException("Thread count and step duration must be positive");
+        }
+        this.criminalManager = criminalManager;
+        this.maxThreads = maxThreads;
+        this.stepMillis = stepMillis;
+        this.withWriter = withWriter;
+    }
+
+    public void run() {
+        List<Criminal> records = criminalManager.viewCriminals();
+        if (records.isEmpty()) {
+            System.out.println("No criminal records to benchmark against. Import some data first.");
+            return;
+        }
+        int[] ids = records.stream().mapToInt(Criminal::getId).toArray();
+        String[] names = records.stream().map(Criminal::getName).filter(n -> n != null && n.length() >= 3)
+                .map(n -> n.substring(0, 3)).distinct().limit(1000).toArray(String[]::new);
+
+        System.out.println("\n------- Contention Benchmark -------");
+        System.out.printf("%d records, %d ms per step, writer %s%n", ids.length, stepMillis, withWriter ? "on" : "off");
+        if (!withWriter) {
+            measure(criminalManager, ids, names);
+            return;
+        }
+        Path dir = Paths.get(SCRATCH_DIR);
+        deleteQuietly(dir); // Leftovers from an interrupted run
+        try {
+            CriminalManager scratch = new CriminalManager(dir.toString());
+            if (!scratch.addCriminals(records)) {
+                System.err.println("Could not copy the records into " + dir);
+                return;
+            }
+            measure(scratch, ids, names);
+        } finally {
+            deleteQuietly(dir);
+        }
+    }
+
+    private void measure(CriminalManager manager, int[] ids, String[] names) {
+        manager.findCriminalByName("warm up"); // Build the search index outside the measurement
+
+        double baseline = 0;
+        int threads = 1;
+        while (true) {
+            double opsPerSecond = runStep(manager, threads, ids, names);
+            if (threads == 1) baseline = opsPerSecond;
+            System.out.printf("Readers: %3d  throughput: %12.0f ops/s  speedup: %5.2fx%n",
+                    threads, opsPerSecond, opsPerSecond / Math.max(baseline, 1));
+            if (threads == maxThreads) break;
+            threads = Math.min(threads * 2, maxThreads);
+        }
+    }
+
+    private double runStep(CriminalManager manager, int threads, int[] ids, String[] names) {
+        LongAdder operations = new LongAdder();
+        AtomicBoolean running = new AtomicBoolean(true);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> workers = new ArrayList<>();
+
+        for (int t = 0; t < threads; t++) {
+            workers.add(new Thread(() -> {
+                awaitQuietly(start);
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                while (running.get()) {
+                    // Mostly point lookups, with one name search in sixteen
+                    if (names.length > 0 && random.nextInt(16) == 0) {
+                        manager.findCriminalByName(names[random.nextInt(names.length)]);
+                    } else {
+                        Optional<Criminal> criminal = manager.findCriminalById(ids[random.nextInt(ids.length)]);
+                        criminal.ifPresent(Criminal::getName);
+                    }
+                    operations.increment();
+                }
+            }, "bench-reader-" + t));
+        }
+        if (withWriter) {
+            workers.add(new Thread(() -> {
+                awaitQuietly(start);
+                while (running.get()) {
+                    int id = manager.reserveIds(1);
+                    manager.addCriminals(List.of(new Criminal(id, "Benchmark Record", "Benchmark", null, null, null, null)));
+                    manager.deleteCriminal(id);
+                }
+            }, "bench-writer"));
+        }
+
+        workers.forEach(Thread::start);
+        long begin = System.nanoTime();
+        start.countDown();
+        try {
+            TimeUnit.MILLISECONDS.sleep(stepMillis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        running.set(false);
+        for (Thread worker : workers) {
+            try {
+                worker.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        double seconds = (System.nanoTime() - begin) / 1_000_000_000.0;
+        return operations.sum() / seconds;
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void deleteQuietly(Path dir) {
+        if (!Files.exists(dir)) return;
+        try (Stream<Path> paths = Files.walk(dir)) {
+            paths.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        } catch (IOException e) {
+            System.err.println("Error deleting benchmark directory " + dir + ": " + e.getMessage());
+        }
+    }
+}
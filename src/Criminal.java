@@ -1,3 +1,8 @@
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamField;
+import java.io.OutputStream;
 import java.io.Serializable;
 import java.time.LocalDate; // Assuming you might want a date later
 
@@ -7,37 +12,151 @@ public class Criminal implements Serializable {
 
     private int id;
     private String name;
-    private String crimeCommitted;
-    private String location;
+    private int crimeCode;    // Code in CRIMES
+    private int locationCode; // Code in LOCATIONS
     private String complainantName;
     private String firDescription;
     private String imagePath; // Store path to the image file in images/
 
+    // Field order inside an encoded record (see RecordCodec.encodeCriminal)
+    static final int FIELD_NAME = 0;
+    static final int FIELD_CRIME = 1;
+    static final int FIELD_LOCATION = 2;
+    static final int FIELD_COMPLAINANT = 3;
+    static final int FIELD_FIR = 4;
+    static final int FIELD_IMAGE = 5;
+    private static final int LAZY_FIELDS = ((1 << 6) - 1) & ~(1 << FIELD_CRIME | 1 << FIELD_LOCATION);
+
+    // Crime types and locations repeat heavily, so records share one dictionary per field (see FieldDictionary)
+    static final FieldDictionary CRIMES = new FieldDictionary();
+    static final FieldDictionary LOCATIONS = new FieldDictionary();
+
+    // Serialized form of the legacy .dat files, which stored crime and location as Strings
+    private static final ObjectStreamField[] serialPersistentFields = {
+            new ObjectStreamField("id", int.class),
+            new ObjectStreamField("name", String.class),
+            new ObjectStreamField("crimeCommitted", String.class),
+            new ObjectStreamField("location", String.class),
+            new ObjectStreamField("complainantName", String.class),
+            new ObjectStreamField("firDescription", String.class),
+            new ObjectStreamField("imagePath", String.class),
+    };
+
+    // Lazy records loaded from a mapped snapshot: the id and the crime and location codes are read up front,
+    // the string fields are decoded one at a time on first access. source is cleared once all are decoded.
+    private transient volatile MappedCriminalFile source;
+    private transient int sourceOffset;
+    private transient int pendingFields;
+
     // Constructor
     public Criminal(int id, String name, String crimeCommitted, String location,
                     String complainantName, String firDescription, String imagePath) {
         this.id = id;
         this.name = name;
-        this.crimeCommitted = crimeCommitted;
-        this.location = location;
+        this.crimeCode = CRIMES.encode(crimeCommitted);
+        this.locationCode = LOCATIONS.encode(location);
         this.complainantName = complainantName;
         this.firDescription = firDescription;
         this.imagePath = imagePath; // Path relative to project root, e.g., "images/criminal_1.jpg"
     }
 
+    // Constructor for already dictionary-encoded crime and location (RecordCodec.decodeCodedCriminal)
+    Criminal(int id, String name, int crimeCode, int locationCode,
+             String complainantName, String firDescription, String imagePath) {
+        this.id = id;
+        this.name = name;
+        this.crimeCode = crimeCode;
+        this.locationCode = locationCode;
+        this.complainantName = complainantName;
+        this.firDescription = firDescription;
+        this.imagePath = imagePath;
+    }
+
+    // Lazy constructor used by MappedCriminalFile
+    Criminal(int id, int crimeCode, int locationCode, MappedCriminalFile source, int sourceOffset) {
+        this.id = id;
+        this.crimeCode = crimeCode;
+        this.locationCode = locationCode;
+        this.source = source;
+        this.sourceOffset = sourceOffset;
+        this.pendingFields = LAZY_FIELDS;
+    }
+
     // --- Getters (Setters might be needed if you allow updates) ---
     public int getId() { return id; }
-    public String getName() { return name; }
-    public String getCrimeCommitted() { return crimeCommitted; }
-    public String getLocation() { return location; }
-    public String getComplainantName() { return complainantName; }
-    public String getFirDescription() { return firDescription; }
-    public String getImagePath() { return imagePath; }
+    public String getName() { if (source != null) decodeField(FIELD_NAME); return name; }
+    public String getCrimeCommitted() { return CRIMES.decode(crimeCode); }
+    public String getLocation() { return LOCATIONS.decode(locationCode); }
+    public String getComplainantName() { if (source != null) decodeField(FIELD_COMPLAINANT); return complainantName; }
+    public String getFirDescription() { if (source != null) decodeField(FIELD_FIR); return firDescription; }
+    public String getImagePath() { if (source != null) decodeField(FIELD_IMAGE); return imagePath; }
+    int getCrimeCode() { return crimeCode; }
+    int getLocationCode() { return locationCode; }
+
+    private synchronized void decodeField(int field) {
+        MappedCriminalFile file = source;
+        if (file == null || (pendingFields & (1 << field)) == 0) return;
+        String value = file.readField(sourceOffset, field);
+        switch (field) {
+            case FIELD_NAME: name = value; break;
+            case FIELD_COMPLAINANT: complainantName = value; break;
+            case FIELD_FIR: firDescription = value; break;
+            case FIELD_IMAGE: imagePath = value; break;
+        }
+        pendingFields &= ~(1 << field);
+        if (pendingFields == 0) {
+            source = null; // Fully decoded; drop the reference to the mapping
+        }
+    }
+
+    // Decodes every field still in the mapping, so the record no longer holds on to it (e.g. once a new
+    // snapshot replaces the mapped one)
+    void detach() {
+        if (source == null) return;
+        getName();
+        getComplainantName();
+        getFirDescription();
+        getImagePath();
+    }
+
+    // Writes the still-encoded record payload (RecordCodec.encodeCodedCriminal) straight from the mapping;
+    // false if already decoded or if the mapped file predates dictionary codes
+    boolean copyEncodedTo(OutputStream out) throws IOException {
+        return copyEncodedTo(out, crimeCode, locationCode);
+    }
+
+    // The same, with the given crime and location codes in place of this process's
+    synchronized boolean copyEncodedTo(OutputStream out, int crimeCode, int locationCode) throws IOException {
+        return source != null && source.copyPayload(sourceOffset, crimeCode, locationCode, out);
+    }
+
+    private void writeObject(ObjectOutputStream out) throws IOException {
+        ObjectOutputStream.PutField fields = out.putFields();
+        fields.put("id", id);
+        fields.put("name", getName());
+        fields.put("crimeCommitted", getCrimeCommitted());
+        fields.put("location", getLocation());
+        fields.put("complainantName", getComplainantName());
+        fields.put("firDescription", getFirDescription());
+        fields.put("imagePath", getImagePath());
+        out.writeFields();
+    }
+
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        ObjectInputStream.GetField fields = in.readFields();
+        id = fields.get("id", 0);
+        name = (String) fields.get("name", null);
+        crimeCode = CRIMES.encode((String) fields.get("crimeCommitted", null));
+        locationCode = LOCATIONS.encode((String) fields.get("location", null));
+        complainantName = (String) fields.get("complainantName", null);
+        firDescription = (String) fields.get("firDescription", null);
+        imagePath = (String) fields.get("imagePath", null);
+    }
 
     @Override
     public String toString() {
-        return "ID: " + id + ", Name: " + name + ", Crime: " + crimeCommitted + ", Location: " + location
-                + ", Complainant: " + complainantName + ", ImagePath: " + imagePath;
+        return "ID: " + id + ", Name: " + getName() + ", Crime: " + getCrimeCommitted() + ", Location: " + getLocation()
+                + ", Complainant: " + getComplainantName() + ", ImagePath: " + getImagePath();
     }
 }
 
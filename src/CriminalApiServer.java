@@ -0,0 +1,378 @@
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+
+// Embedded HTTP/JSON service over the shared managers. Every request needs HTTP Basic credentials
+// of an operator account; repeated failed logins from a client or for a user name are answered with 429
+// before the password is checked. Binds to loopback unless given another address.
+//
+//   GET    /api/criminals/{id}          one record
+//   GET    /api/criminals?name=&crime=&location=&complainant=&fir=&page=&size=
+//                                       ranked search (at least one filter), paged like the menus
+//   POST   /api/criminals               add a record from {"name", "crime", "location", "complainant", "firDescription"},
+//                                       optionally with a photo as "imageBase64" plus "imageExtension" (default .jpg)
+//   DELETE /api/criminals/{id}          delete a record
+//   GET    /api/criminals/{id}/report   HTML report, streamed without touching the reports directory
+public class CriminalApiServer {
+    public static final String DEFAULT_BIND_ADDRESS = "127.0.0.1";
+    private static final int MAX_BODY_BYTES = 16 * 1024 * 1024; // Room for a Base64 photo
+    private static final List<String> IMAGE_EXTENSIONS = List.of(".jpg", ".jpeg", ".png", ".gif", ".bmp");
+    private static final int DEFAULT_PAGE_SIZE = 20;
+    private static final int MAX_PAGE_SIZE = 500;
+
+    private final CriminalManager criminalManager;
+    private final OperatorManager operatorManager;
+    private final CriminalReportGenerator reportGenerator;
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final LoginThrottle loginThrottle = new LoginThrottle();
+    private final String bindAddress;
+
+    public CriminalApiServer(CriminalManager criminalManager, OperatorManager operatorManager,
+                             CriminalReportGenerator reportGenerator, int port) throws IOException {
+        this(criminalManager, operatorManager, reportGenerator, DEFAULT_BIND_ADDRESS, port);
+    }
+
+    public CriminalApiServer(CriminalManager criminalManager, OperatorManager operatorManager,
+                             CriminalReportGenerator reportGenerator, String bindAddress, int port) throws IOException {
+        this.criminalManager = criminalManager;
+        this.bindAddress = bindAddress;
+        this.operatorManager = operatorManager;
+        this.reportGenerator = reportGenerator;
+        if (System.getProperty("sun.net.httpserver.nodelay") == null) {
+            // Headers and body go out as separate writes; with Nagle on, keep-alive clients stall on delayed ACKs
+            System.setProperty("sun.net.httpserver.nodelay", "true");
+        }
+        this.server = HttpServer.create(new InetSocketAddress(bindAddress, port), 0);
+        this.executor = TaskExecutors.newThreadPerTaskExecutor("http");
+        server.createContext("/api/criminals", this::handle);
+        server.setExecutor(executor);
+    }
+
+    public void start() {
+        server.start();
+        System.out.println("Criminal API listening on http://" + bindAddress + ":" + getPort() + "/api/criminals"
+                + (TaskExecutors.virtualThreadsAvailable() ? " (virtual threads)" : ""));
+    }
+
+    public void stop() {
+        server.stop(1);
+        executor.shutdown();
+    }
+
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    // --- Routing ---
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try {
+            if (!authenticate(exchange)) {
+                return;
+            }
+            String method = exchange.getRequestMethod();
+            String[] parts = pathAfterContext(exchange);
+
+            if (parts.length == 0) {
+                if (method.equals("GET")) {
+                    search(exchange);
+                } else if (method.equals("POST")) {
+                    add(exchange);
+                } else {
+                    sendError(exchange, 405, "Method not allowed");
+                }
+            } else if (parts.length == 1 && method.equals("GET")) {
+                withCriminal(exchange, parts[0], criminal -> sendJson(exchange, 200, toJson(criminal)));
+            } else if (parts.length == 1 && method.equals("DELETE")) {
+                delete(exchange, parts[0]);
+            } else if (parts.length == 2 && parts[1].equals("report") && method.equals("GET")) {
+                withCriminal(exchange, parts[0], criminal -> sendReport(exchange, criminal));
+            } else {
+                sendError(exchange, 404, "No such resource");
+            }
+        } catch (IllegalArgumentException e) {
+            sendError(exchange, 400, e.getMessage());
+        } catch (RuntimeException e) {
+            System.err.println("Error handling " + exchange.getRequestMethod() + " " + exchange.getRequestURI() + ": " + e);
+            sendError(exchange, 500, "Internal error");
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private String[] pathAfterContext(HttpExchange exchange) {
+        String rest = exchange.getRequestURI().getPath().substring(exchange.getHttpContext().getPath().length());
+        List<String> parts = new ArrayList<>();
+        for (String part : rest.split("/")) {
+            if (!part.isEmpty()) parts.add(part);
+        }
+        return parts.toArray(new String[0]);
+    }
+
+    // True for a valid operator; otherwise the 401 or 429 response has already been sent
+    private boolean authenticate(HttpExchange exchange) throws IOException {
+        String[] credentials = basicCredentials(exchange);
+        String clientKey = "client:" + exchange.getRemoteAddress().getAddress().getHostAddress();
+        String userKey = credentials == null ? null : "user:" + credentials[0].toLowerCase(Locale.ROOT);
+        long now = System.currentTimeMillis();
+        long waitMillis = Math.max(loginThrottle.retryAfterMillis(clientKey, now),
+                userKey == null ? 0 : loginThrottle.retryAfterMillis(userKey, now));
+        if (waitMillis > 0) {
+            exchange.getResponseHeaders().set("Retry-After", Long.toString((waitMillis + 999) / 1000));
+            sendError(exchange, 429, "Too many failed logins, try again later");
+            return false;
+        }
+        if (credentials != null) {
+            if (operatorManager.validateLogin(credentials[0], credentials[1]).isPresent()) {
+                loginThrottle.recordSuccess(userKey);
+                return true;
+            }
+            loginThrottle.recordFailure(clientKey, now);
+            loginThrottle.recordFailure(userKey, now);
+        }
+        exchange.getResponseHeaders().set("WWW-Authenticate", "Basic realm=\"criminals\"");
+        sendError(exchange, 401, "Valid operator credentials are required");
+        return false;
+    }
+
+    // {name, password} from an HTTP Basic header, or null if there is none
+    private static String[] basicCredentials(HttpExchange exchange) {
+        String header = exchange.getRequestHeaders().getFirst("Authorization");
+        if (header == null || !header.regionMatches(true, 0, "Basic ", 0, 6)) {
+            return null;
+        }
+        String credentials;
+        try {
+            credentials = new String(Base64.getDecoder().decode(header.substring(6).trim()), StandardCharsets.UTF_8);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+        int colon = credentials.indexOf(':');
+        return colon > 0 ? new String[]{credentials.substring(0, colon), credentials.substring(colon + 1)} : null;
+    }
+
+    // --- Endpoints ---
+
+    private void search(HttpExchange exchange) throws IOException {
+        Map<String, String> params = queryParameters(exchange);
+        List<CriminalQuery> clauses = new ArrayList<>();
+        if (params.containsKey("name")) clauses.add(CriminalQuery.nameContains(params.get("name")));
+        if (params.containsKey("crime")) clauses.add(CriminalQuery.crimeIs(params.get("crime")));
+        if (params.containsKey("location")) clauses.add(CriminalQuery.locationIs(params.get("location")));
+        if (params.containsKey("complainant")) clauses.add(CriminalQuery.complainantIs(params.get("complainant")));
+        if (params.containsKey("fir")) clauses.add(CriminalQuery.firMentions(params.get("fir")));
+        if (clauses.isEmpty()) {
+            throw new IllegalArgumentException("Give at least one of name, crime, location, complainant or fir");
+        }
+        int pageNumber = intParameter(params, "page", 1);
+        int pageSize = Math.min(intParameter(params, "size", DEFAULT_PAGE_SIZE), MAX_PAGE_SIZE);
+        Page<Criminal> page = criminalManager.search(CriminalQuery.and(clauses), pageNumber, pageSize);
+
+        StringBuilder json = new StringBuilder(256 + page.getItems().size() * 256);
+        json.append("{\"page\":").append(page.getPageNumber())
+                .append(",\"pageSize\":").append(page.getPageSize())
+                .append(",\"totalCount\":").append(page.getTotalCount())
+                .append(",\"totalPages\":").append(page.getTotalPages())
+                .append(",\"items\":[");
+        for (int i = 0; i < page.getItems().size(); i++) {
+            if (i > 0) json.append(',');
+            appendJson(json, page.getItems().get(i));
+        }
+        json.append("]}");
+        sendJson(exchange, 200, json.toString());
+    }
+
+    private void add(HttpExchange exchange) throws IOException {
+        if (refuseIfReadOnly(exchange)) return;
+        Map<String, Object> body = Json.parseObject(readBody(exchange));
+        String name = stringField(body, "name");
+        String crime = stringField(body, "crime");
+        if (name == null || name.trim().isEmpty() || crime == null || crime.trim().isEmpty()) {
+            throw new IllegalArgumentException("name and crime are required");
+        }
+        String imagePath = null;
+        String imageData = stringField(body, "imageBase64");
+        if (imageData != null) {
+            String extension = imageExtension(stringField(body, "imageExtension"));
+            byte[] image = Base64.getDecoder().decode(imageData.replaceAll("\\s", "")); // Bad Base64 is a 400 like any other bad field
+            if (image.length == 0) {
+                throw new IllegalArgumentException("imageBase64 is empty");
+            }
+            try {
+                imagePath = criminalManager.attachImage(new ByteArrayInputStream(image), extension).join();
+            } catch (CompletionException e) {
+                System.err.println("Error storing uploaded image: " + e.getCause());
+                sendError(exchange, 500, "Image could not be stored");
+                return;
+            }
+        }
+        Criminal criminal = new Criminal(criminalManager.reserveIds(1), name, crime, stringField(body, "location"),
+                stringField(body, "complainant"), stringField(body, "firDescription"), imagePath);
+        if (!criminalManager.addCriminals(List.of(criminal))) {
+            criminalManager.discardImage(imagePath, criminal.getId()); // Don't keep an upload no record uses
+            sendError(exchange, 500, "Record could not be saved");
+            return;
+        }
+        exchange.getResponseHeaders().set("Location", "/api/criminals/" + criminal.getId());
+        sendJson(exchange, 201, toJson(criminal));
+    }
+
+    private void delete(HttpExchange exchange, String idText) throws IOException {
+        if (refuseIfReadOnly(exchange)) return;
+        if (criminalManager.deleteCriminal(parseId(idText))) {
+            exchange.sendResponseHeaders(204, -1);
+        } else {
+            sendError(exchange, 404, "Criminal not found");
+        }
+    }
+
+    // A follower's records come from its primary; a write here is a client error, not a server failure
+    private boolean refuseIfReadOnly(HttpExchange exchange) throws IOException {
+        if (!criminalManager.isReadOnly()) return false;
+        sendError(exchange, 403, "This node is a read-only replica. Make changes on the primary.");
+        return true;
+    }
+
+    private void sendReport(HttpExchange exchange, Criminal criminal) throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", "text/html; charset=UTF-8");
+        exchange.getResponseHeaders().set("Content-Disposition",
+                "inline; filename=\"" + reportGenerator.reportPathFor(criminal).getFileName() + "\"");
+        exchange.sendResponseHeaders(200, 0); // Chunked: the report is rendered straight into the response
+        try (OutputStream out = exchange.getResponseBody()) {
+            reportGenerator.writeReport(criminal, out);
+        }
+    }
+
+    private interface CriminalAction {
+        void accept(Criminal criminal) throws IOException;
+    }
+
+    private void withCriminal(HttpExchange exchange, String idText, CriminalAction action) throws IOException {
+        Optional<Criminal> criminal = criminalManager.findCriminalById(parseId(idText));
+        if (criminal.isPresent()) {
+            action.accept(criminal.get());
+        } else {
+            sendError(exchange, 404, "Criminal not found");
+        }
+    }
+
+    // --- JSON ---
+
+    static String toJson(Criminal criminal) {
+        StringBuilder json = new StringBuilder(256);
+        appendJson(json, criminal);
+        return json.toString();
+    }
+
+    static void appendJson(StringBuilder json, Criminal criminal) {
+        json.append("{\"id\":").append(criminal.getId());
+        json.append(",\"name\":");
+        Json.appendQuoted(json, criminal.getName());
+        json.append(",\"crime\":");
+        Json.appendQuoted(json, criminal.getCrimeCommitted());
+        json.append(",\"location\":");
+        Json.appendQuoted(json, criminal.getLocation());
+        json.append(",\"complainant\":");
+        Json.appendQuoted(json, criminal.getComplainantName());
+        json.append(",\"firDescription\":");
+        Json.appendQuoted(json, criminal.getFirDescription());
+        json.append(",\"imagePath\":");
+        Json.appendQuoted(json, criminal.getImagePath());
+        json.append('}');
+    }
+
+    private static String imageExtension(String extension) {
+        String normalized = extension == null ? ".jpg" : (extension.startsWith(".") ? extension : "." + extension).toLowerCase(Locale.ROOT);
+        if (!IMAGE_EXTENSIONS.contains(normalized)) {
+            throw new IllegalArgumentException("imageExtension must be one of " + IMAGE_EXTENSIONS);
+        }
+        return normalized;
+    }
+
+    private static String stringField(Map<String, Object> body, String key) {
+        Object value = body.get(key);
+        return value == null ? null : value.toString();
+    }
+
+    // --- Request and response helpers ---
+
+    private static int parseId(String text) {
+        try {
+            return Integer.parseInt(text);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid criminal ID: " + text);
+        }
+    }
+
+    private static int intParameter(Map<String, String> params, String name, int defaultValue) {
+        String value = params.get(name);
+        if (value == null) return defaultValue;
+        try {
+            int parsed = Integer.parseInt(value);
+            if (parsed < 1) throw new NumberFormatException();
+            return parsed;
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Parameter " + name + " must be a positive number");
+        }
+    }
+
+    private static Map<String, String> queryParameters(HttpExchange exchange) {
+        Map<String, String> params = new HashMap<>();
+        String query = exchange.getRequestURI().getRawQuery();
+        if (query == null) return params;
+        for (String pair : query.split("&")) {
+            if (pair.isEmpty()) continue;
+            int eq = pair.indexOf('=');
+            String key = URLDecoder.decode(eq < 0 ? pair : pair.substring(0, eq), StandardCharsets.UTF_8);
+            String value = eq < 0 ? "" : URLDecoder.decode(pair.substring(eq + 1), StandardCharsets.UTF_8);
+            params.put(key, value);
+        }
+        return params;
+    }
+
+    private static String readBody(HttpExchange exchange) throws IOException {
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        byte[] buffer = new byte[8192];
+        try (InputStream in = exchange.getRequestBody()) {
+            int read;
+            while ((read = in.read(buffer)) > 0) {
+                if (body.size() + read > MAX_BODY_BYTES) {
+                    throw new IllegalArgumentException("Request body too large");
+                }
+                body.write(buffer, 0, read);
+            }
+        }
+        return body.toString(StandardCharsets.UTF_8);
+    }
+
+    private static void sendJson(HttpExchange exchange, int status, String json) throws IOException {
+        byte[] bytes = json.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=UTF-8");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    private static void sendError(HttpExchange exchange, int status, String message) throws IOException {
+        sendJson(exchange, status, "{\"error\":" + Json.quote(message) + "}");
+    }
+}
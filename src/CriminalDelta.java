@@ -0,0 +1,39 @@
+import java.util.List;
+
+// Changes to one criminal store between two change sequence numbers, as exported by
+// CriminalManager.exportDelta for a replica: the journal records themselves (CriminalJournal.OP_* followed by
+// the plain RecordCodec payload). A reset delta instead carries every live record, and the replica replaces
+// its contents with them; it is sent when the replica follows another store or has fallen too far behind.
+// Serialized with RecordCodec.writeDelta / readDelta.
+public class CriminalDelta {
+    private final long storeId;
+    private final long fromSequence;
+    private final long toSequence;
+    private final boolean reset;
+    private final List<byte[]> records;
+
+    public CriminalDelta(long storeId, long fromSequence, long toSequence, boolean reset, List<byte[]> records) {
+        if (!reset && toSequence - fromSequence != records.size()) {
+            throw new IllegalArgumentException("Delta from " + fromSequence + " to " + toSequence
+                    + " needs " + (toSequence - fromSequence) + " records, not " + records.size());
+        }
+        this.storeId = storeId;
+        this.fromSequence = fromSequence;
+        this.toSequence = toSequence;
+        this.reset = reset;
+        this.records = records;
+    }
+
+    public long getStoreId() { return storeId; }
+    public long getFromSequence() { return fromSequence; }
+    public long getToSequence() { return toSequence; }
+    public boolean isReset() { return reset; }
+    public List<byte[]> getRecords() { return records; }
+
+    @Override
+    public String toString() {
+        return reset
+                ? "reset of store " + Long.toHexString(storeId) + " to sequence " + toSequence + " (" + records.size() + " records)"
+                : "store " + Long.toHexString(storeId) + " changes " + fromSequence + ".." + toSequence + " (" + records.size() + " records)";
+    }
+}
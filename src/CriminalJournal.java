@@ -0,0 +1,514 @@
+import java.io.*;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// Append-only log of criminal add/delete operations.
+// Each mutation appends one small record instead of rewriting the whole snapshot;
+// the log is replayed on top of the snapshot at startup and started afresh after compaction.
+// Every add or delete record is one change: a journal opens with a marker naming its store and the change
+// sequence it continues from, so the current sequence is that base plus the records since. Compaction keeps
+// the previous journal as <journal>.prev, so deltas can still be exported for at least one journal's worth
+// of changes after a snapshot. Both segments keep a sparse in-memory index of record offsets, so exporting
+// reads only the changes asked for.
+public class CriminalJournal {
+    static final byte OP_ADD = 1;
+    static final byte OP_DELETE = 2;
+    static final byte OP_SEQUENCE = 3; // Marker: store id and base change sequence (first record only)
+    static final int INDEX_STRIDE = 64; // Change records per offset index entry
+
+    private final String journalFilePath;
+    private final String previousFilePath;
+    private FileOutputStream fileOut;
+    private DataOutputStream out;
+    private volatile int entryCount = 0; // Updated by the group-commit thread
+    private volatile long storeId = 0; // 0 until the journal has a sequence marker
+    private volatile long baseSequence = 0;
+    private SegmentIndex currentIndex; // Null until the journal has a marker; extended by the group-commit thread
+    private SegmentIndex previousIndex; // Of <journal>.prev, if any
+    private volatile AppendListener appendListener;
+    private volatile boolean broken; // A failed append could not be cut back; no more appends are accepted
+
+    // Told about each batch of change records once it is durable: on the group-commit thread, in sequence order
+    public interface AppendListener {
+        void appended(long storeId, long fromSequence, List<byte[]> records);
+    }
+
+    public CriminalJournal(String journalFilePath) {
+        this.journalFilePath = journalFilePath;
+        this.previousFilePath = journalFilePath + ".prev";
+    }
+
+    // --- Replay ---
+
+    // Applies every complete record in the journal to the loaded snapshot list.
+    // A torn record at the tail (e.g. crash mid-append) is discarded and truncated away.
+    public List<Criminal> replay(List<Criminal> snapshot) {
+        Path path = Paths.get(journalFilePath);
+        if (!Files.exists(path)) {
+            return snapshot;
+        }
+
+        Map<Integer, Criminal> byId = new LinkedHashMap<>();
+        for (Criminal c : snapshot) {
+            byId.put(c.getId(), c);
+        }
+
+        long validLength = 0;
+        int applied = 0;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(journalFilePath)))) {
+            while (true) {
+                in.mark(1);
+                if (in.read() < 0) {
+                    break; // Clean end of journal
+                }
+                in.reset();
+                int recordLength = RecordCodec.readVarInt(in);
+                byte[] record = new byte[recordLength];
+                in.readFully(record); // EOFException here means a torn tail record
+                int frameLength = frameLength(record);
+                if (validLength == 0 && isMarker(record)) {
+                    readMarker(record);
+                    currentIndex = new SegmentIndex(storeId, baseSequence, frameLength);
+                } else {
+                    applyRecord(record, byId);
+                    applied++;
+                    if (currentIndex != null) currentIndex.add(frameLength);
+                }
+                validLength += frameLength;
+            }
+        } catch (EOFException e) {
+            System.err.println("Discarding incomplete record at end of journal " + journalFilePath);
+        } catch (IOException e) {
+            System.err.println("Error replaying journal " + journalFilePath + ": " + e.getMessage());
+        }
+
+        truncateTo(validLength);
+        entryCount = applied;
+        previousIndex = indexSegment(previousFilePath);
+        if (applied > 0) {
+            System.out.println("Replayed " + applied + " journal entries from " + journalFilePath);
+        }
+        return new ArrayList<>(byId.values());
+    }
+
+    private void applyRecord(byte[] record, Map<Integer, Criminal> byId) throws IOException {
+        Change change = Change.decode(record);
+        byId.remove(change.id); // Re-adding keeps replay idempotent after an interrupted compaction
+        if (change.added != null) {
+            byId.put(change.id, change.added);
+        }
+    }
+
+    // A decoded add or delete record; added is null for a delete
+    static final class Change {
+        final int id;
+        final Criminal added;
+
+        private Change(int id, Criminal added) {
+            this.id = id;
+            this.added = added;
+        }
+
+        static Change decode(byte[] record) throws IOException {
+            InputStream in = new ByteArrayInputStream(record);
+            int op = in.read();
+            if (op == OP_ADD) {
+                Criminal criminal = RecordCodec.decodeCriminal(in);
+                return new Change(criminal.getId(), criminal);
+            } else if (op == OP_DELETE) {
+                return new Change(RecordCodec.readVarInt(in), null);
+            }
+            throw new IOException("Unknown journal operation " + op);
+        }
+    }
+
+    private void truncateTo(long length) {
+        try (RandomAccessFile raf = new RandomAccessFile(journalFilePath, "rw")) {
+            if (raf.length() > length) {
+                raf.setLength(length);
+            }
+        } catch (IOException e) {
+            System.err.println("Error truncating journal " + journalFilePath + ": " + e.getMessage());
+        }
+    }
+
+    // --- Append ---
+
+    public boolean appendAdd(Criminal criminal) {
+        return appendAdds(Collections.singletonList(criminal));
+    }
+
+    // Appends all records with a single flush and sync
+    public boolean appendAdds(List<Criminal> batch) {
+        try {
+            return appendRecords(encodeAdds(batch));
+        } catch (IOException e) {
+            System.err.println("Error encoding journal record: " + e.getMessage());
+            return false;
+        }
+    }
+
+    public boolean appendDelete(int id) {
+        return appendRecords(Collections.singletonList(encodeDelete(id)));
+    }
+
+    static List<byte[]> encodeAdds(List<Criminal> batch) throws IOException {
+        List<byte[]> records = new ArrayList<>(batch.size());
+        for (Criminal criminal : batch) {
+            ByteArrayOutputStream record = new ByteArrayOutputStream(256);
+            record.write(OP_ADD);
+            RecordCodec.encodeCriminal(criminal, record);
+            records.add(record.toByteArray());
+        }
+        return records;
+    }
+
+    static byte[] encodeDelete(int id) {
+        ByteArrayOutputStream record = new ByteArrayOutputStream(8);
+        record.write(OP_DELETE);
+        try {
+            RecordCodec.writeVarInt(record, id);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e); // ByteArrayOutputStream does not throw
+        }
+        return record.toByteArray();
+    }
+
+    // Writes already encoded records with a single flush and sync
+    boolean appendRecords(List<byte[]> records) {
+        if (broken) {
+            System.err.println("Journal " + journalFilePath + " is not accepting changes after an earlier write error");
+            return false;
+        }
+        long goodLength = currentIndex != null ? currentIndex.length : new File(journalFilePath).length();
+        try {
+            if (out == null) {
+                fileOut = new FileOutputStream(journalFilePath, true);
+                out = new DataOutputStream(new BufferedOutputStream(fileOut, 64 * 1024));
+            }
+            for (byte[] record : records) {
+                RecordCodec.writeVarInt(out, record.length);
+                out.write(record);
+            }
+            out.flush();
+            fileOut.getFD().sync(); // Records are durable before the caller is told they succeeded
+            if (currentIndex != null) {
+                for (byte[] record : records) {
+                    currentIndex.add(frameLength(record));
+                }
+            }
+            long fromSequence = getSequence();
+            entryCount += records.size();
+            AppendListener listener = appendListener;
+            if (listener != null) {
+                listener.appended(storeId, fromSequence, records);
+            }
+            return true;
+        } catch (IOException e) {
+            System.err.println("Error appending to journal " + journalFilePath + ": " + e.getMessage());
+            abandonAppend(goodLength);
+            return false;
+        }
+    }
+
+    // Drops whatever a failed append buffered or wrote, so a partial batch is never replayed or exported.
+    // The next append reopens the file.
+    private void abandonAppend(long goodLength) {
+        if (fileOut != null) {
+            try {
+                fileOut.close(); // Not out.close(), which would flush the rest of the batch
+            } catch (IOException e) {
+                System.err.println("Error closing journal " + journalFilePath + ": " + e.getMessage());
+            }
+        }
+        out = null;
+        fileOut = null;
+        try (RandomAccessFile raf = new RandomAccessFile(journalFilePath, "rw")) {
+            if (raf.length() > goodLength) {
+                raf.setLength(goodLength);
+                raf.getFD().sync();
+            }
+        } catch (IOException e) {
+            broken = true;
+            System.err.println("Could not cut journal " + journalFilePath + " back to its last complete record ("
+                    + e.getMessage() + "); refusing further changes");
+        }
+    }
+
+    public void setAppendListener(AppendListener listener) {
+        appendListener = listener;
+    }
+
+    // --- Compaction support ---
+
+    public int getEntryCount() {
+        return entryCount;
+    }
+
+    // Called once the snapshot holds everything in the journal. The journal becomes the previous segment and
+    // a new one continues the same change sequence.
+    public boolean reset() {
+        return startSegment(storeId != 0 ? storeId : newStoreId(), getSequence(), true);
+    }
+
+    // Starts a new change history (e.g. after a replica was reset), dropping the retained segments.
+    // Called once the snapshot holds everything.
+    public boolean restart(long newStoreId, long newBaseSequence) {
+        return startSegment(newStoreId, newBaseSequence, false);
+    }
+
+    private boolean startSegment(long newStoreId, long newBaseSequence, boolean keepPrevious) {
+        close();
+        try {
+            Path current = Paths.get(journalFilePath);
+            Path previous = Paths.get(previousFilePath);
+            boolean kept = keepPrevious && Files.exists(current);
+            if (kept) {
+                Files.move(current, previous, StandardCopyOption.REPLACE_EXISTING);
+            } else {
+                Files.deleteIfExists(previous);
+            }
+            previousIndex = kept ? currentIndex : null;
+            byte[] marker = encodeMarker(newStoreId, newBaseSequence);
+            try (FileOutputStream fresh = new FileOutputStream(journalFilePath)) {
+                RecordCodec.writeVarInt(fresh, marker.length);
+                fresh.write(marker);
+                fresh.getFD().sync();
+            }
+            currentIndex = new SegmentIndex(newStoreId, newBaseSequence, frameLength(marker));
+            storeId = newStoreId;
+            baseSequence = newBaseSequence;
+            entryCount = 0;
+            return true;
+        } catch (IOException e) {
+            System.err.println("Error resetting journal " + journalFilePath + ": " + e.getMessage());
+            return false;
+        }
+    }
+
+    // --- Change sequence ---
+
+    public boolean hasSequenceMarker() {
+        return storeId != 0;
+    }
+
+    public long getStoreId() {
+        return storeId;
+    }
+
+    // Changes made to the store since its history began (exact only while no append or reset is running)
+    public long getSequence() {
+        return baseSequence + entryCount;
+    }
+
+    static long newStoreId() {
+        long id;
+        do {
+            id = new SecureRandom().nextLong();
+        } while (id == 0);
+        return id;
+    }
+
+    // Opens the change records after sinceSequence for reading, or returns null if they are no longer all
+    // retained. Callers make sure no append or reset runs during the call, which only looks up offsets and
+    // opens files; appends and resets may go ahead while the reader reads the records that existed at the call.
+    ChangeReader openChangesSince(long sinceSequence) {
+        if (storeId == 0 || currentIndex == null || sinceSequence > getSequence()) {
+            return null;
+        }
+        List<Range> ranges = new ArrayList<>(2);
+        try {
+            if (sinceSequence < baseSequence) {
+                SegmentIndex previous = previousIndex;
+                if (previous == null || previous.storeId != storeId || previous.baseSequence > sinceSequence
+                        || previous.baseSequence + previous.count != baseSequence) {
+                    return null; // Already folded into the snapshot and no longer retained
+                }
+                ranges.add(previous.rangeAfter(previousFilePath, sinceSequence));
+            }
+            ranges.add(currentIndex.rangeAfter(journalFilePath, Math.max(sinceSequence, baseSequence)));
+        } catch (IOException e) {
+            System.err.println("Error opening journal " + journalFilePath + ": " + e.getMessage());
+            new ChangeReader(ranges).close();
+            return null;
+        }
+        return new ChangeReader(ranges);
+    }
+
+    // Change records captured by openChangesSince, oldest first; read them without holding any lock
+    static final class ChangeReader implements Closeable {
+        private final List<Range> ranges;
+
+        private ChangeReader(List<Range> ranges) {
+            this.ranges = ranges;
+        }
+
+        List<byte[]> read() throws IOException {
+            List<byte[]> records = new ArrayList<>();
+            for (Range range : ranges) {
+                range.readInto(records);
+            }
+            return records;
+        }
+
+        @Override
+        public void close() {
+            for (Range range : ranges) {
+                try {
+                    if (range.channel != null) range.channel.close();
+                } catch (IOException e) {
+                    System.err.println("Error closing journal reader: " + e.getMessage());
+                }
+            }
+        }
+    }
+
+    // The last `records` records of a segment file, starting `skip` records after offset `start`
+    private static final class Range {
+        final FileChannel channel; // Null when no records are wanted
+        final long start;
+        final int skip;
+        final int records;
+
+        Range(FileChannel channel, long start, int skip, int records) {
+            this.channel = channel;
+            this.start = start;
+            this.skip = skip;
+            this.records = records;
+        }
+
+        void readInto(List<byte[]> target) throws IOException {
+            if (records == 0) return;
+            // Records appended after the capture may follow; only the counted ones are read
+            DataInputStream in = new DataInputStream(new BufferedInputStream(Channels.newInputStream(channel.position(start))));
+            for (int i = 0; i < skip + records; i++) {
+                byte[] record = new byte[RecordCodec.readVarInt(in)];
+                in.readFully(record);
+                if (i >= skip) target.add(record);
+            }
+        }
+    }
+
+    // File offsets of a segment's change records: one per INDEX_STRIDE records, so a read from any sequence
+    // seeks to within INDEX_STRIDE - 1 records of it instead of scanning the segment
+    private static final class SegmentIndex {
+        final long storeId;
+        final long baseSequence;
+        private long[] offsets = new long[16];
+        int count = 0; // Change records in the segment
+        long length; // End of the last complete record
+
+        SegmentIndex(long storeId, long baseSequence, long firstRecordOffset) {
+            this.storeId = storeId;
+            this.baseSequence = baseSequence;
+            this.length = firstRecordOffset;
+        }
+
+        void add(int frameLength) {
+            if (count % INDEX_STRIDE == 0) {
+                int slot = count / INDEX_STRIDE;
+                if (slot == offsets.length) {
+                    offsets = Arrays.copyOf(offsets, slot * 2);
+                }
+                offsets[slot] = length;
+            }
+            length += frameLength;
+            count++;
+        }
+
+        // The records after sinceSequence, which lies within this segment. A FileChannel (unlike a
+        // FileInputStream on Windows) lets a reset rename or delete the file while it is open.
+        Range rangeAfter(String filePath, long sinceSequence) throws IOException {
+            int first = (int) (sinceSequence - baseSequence);
+            if (first >= count) {
+                return new Range(null, length, 0, 0);
+            }
+            FileChannel channel = FileChannel.open(Paths.get(filePath), StandardOpenOption.READ);
+            return new Range(channel, offsets[first / INDEX_STRIDE], first % INDEX_STRIDE, count - first);
+        }
+    }
+
+    // Offsets of a segment left by an earlier run, e.g. <journal>.prev; null if it is missing or has no marker
+    private static SegmentIndex indexSegment(String filePath) {
+        if (!Files.exists(Paths.get(filePath))) {
+            return null;
+        }
+        SegmentIndex index = null;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(filePath)))) {
+            byte[] first = readFramed(in);
+            if (first == null || !isMarker(first)) {
+                return null;
+            }
+            DataInputStream marker = new DataInputStream(new ByteArrayInputStream(first, 1, first.length - 1));
+            index = new SegmentIndex(RecordCodec.readVarLong(marker), RecordCodec.readVarLong(marker), frameLength(first));
+            byte[] record;
+            while ((record = readFramed(in)) != null) {
+                index.add(frameLength(record));
+            }
+        } catch (EOFException e) {
+            // Torn tail: the complete records before it still count
+        } catch (IOException e) {
+            System.err.println("Error reading journal " + filePath + ": " + e.getMessage());
+            return null;
+        }
+        return index;
+    }
+
+    private static int frameLength(byte[] record) {
+        return RecordCodec.varIntSize(record.length) + record.length;
+    }
+
+    // Next length-prefixed record, or null at a clean end of file
+    private static byte[] readFramed(DataInputStream in) throws IOException {
+        in.mark(1);
+        if (in.read() < 0) {
+            return null;
+        }
+        in.reset();
+        byte[] record = new byte[RecordCodec.readVarInt(in)];
+        in.readFully(record);
+        return record;
+    }
+
+    private static boolean isMarker(byte[] record) {
+        return record.length > 0 && record[0] == OP_SEQUENCE;
+    }
+
+    private void readMarker(byte[] record) throws IOException {
+        InputStream in = new ByteArrayInputStream(record, 1, record.length - 1);
+        storeId = RecordCodec.readVarLong(in);
+        baseSequence = RecordCodec.readVarLong(in);
+    }
+
+    private static byte[] encodeMarker(long storeId, long baseSequence) throws IOException {
+        ByteArrayOutputStream record = new ByteArrayOutputStream(24);
+        record.write(OP_SEQUENCE);
+        RecordCodec.writeVarLong(record, storeId);
+        RecordCodec.writeVarLong(record, baseSequence);
+        return record.toByteArray();
+    }
+
+    public void close() {
+        if (out != null) {
+            try {
+                out.close();
+            } catch (IOException e) {
+                System.err.println("Error closing journal " + journalFilePath + ": " + e.getMessage());
+            }
+            out = null;
+            fileOut = null;
+        }
+    }
+}
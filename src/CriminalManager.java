@@ -3,30 +3,119 @@ import javax.swing.filechooser.FileNameExtensionFilter;
 import java.awt.*;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
+import java.awt.event.WindowAdapter;
+import java.awt.event.WindowEvent;
 import java.io.*;
 import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
 import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.nio.file.StandardCopyOption;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
 import java.util.List;
+import java.util.NoSuchElementException;
 import java.util.Optional;
-import java.util.stream.Collectors;
+import java.util.PriorityQueue;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
+// Safe for concurrent sessions: readers share tableLock, writers take it exclusively only while the
+// in-memory table and indexes change. Journal records are queued under writeOrder (so journal order
+// matches memory order) and written by a group-commit thread, so a reader never waits for a disk flush
+// and concurrent writers share one fsync. Tune the batching with -Dcriminals.groupCommit.maxBatch=<records>
+// and -Dcriminals.groupCommit.maxLatencyMs=<ms>. -Dcriminals.store=columnar keeps the records off-heap
+// (ColumnarCriminalStore) instead of as Criminal objects, for datasets that would otherwise crowd the heap.
+// Every journaled change advances the store's change sequence; exportDelta and applyDelta copy the changes
+// since a given sequence to a read-only replica instead of shipping the whole snapshot; ReplicationServer and
+// ReplicationFollower stream them between nodes.
 public class CriminalManager {
-    private List<Criminal> criminals;
-    private final String dataFilePath = "data/criminals.dat";
+    private final RecordStore<Criminal> criminals; // Records in insertion order, indexed by id
+    private volatile CriminalSearchIndex searchIndex; // Built on the first search, then maintained on add/delete
+    private volatile CriminalStatistics statistics; // Built on first use, then maintained on add/delete
+    private final ReentrantReadWriteLock tableLock = new ReentrantReadWriteLock();
+    private final ReentrantLock writeOrder = new ReentrantLock(); // Keeps journal order equal to in-memory order
+    private final String dataFilePath;
+    private final String journalFilePath;
+    private final CriminalJournal journal;
+    private final GroupCommitWriter journalWriter;
     private final String imagesDirPath = "images/"; // Relative path for image storage
-    private int nextId = 1;
+    private final ImageStore imageStore;
+    private final ExecutorService imageExecutor = TaskExecutors.newThreadPerTaskExecutor("image-attach");
+    private final AtomicInteger nextId = new AtomicInteger(1);
+    private volatile boolean readOnly = false; // Set on replication followers: only applyDelta changes the records
+
+    // Fold the journal into a fresh snapshot once it holds this many entries (and at least as
+    // many as there are records, so compaction cost stays proportional to the work journaled)
+    private static final int COMPACTION_THRESHOLD = 1000;
+    private int compactionRetryAt = 0; // Journal size at which a failed compaction is tried again; guarded by writeOrder
+
+    static final int PROBE_BUDGET = 1024; // Id lookups a keyset page may spend on gaps before scanning instead
+    private static final int STREAM_BATCH_SIZE = 256; // Records fetched per read lock by iterateCriminals
 
     public CriminalManager() {
-        ensureDirectoryExists("data");
+        this("data");
+    }
+
+    // Keeps criminals.dat and its journal in dataDirPath
+    public CriminalManager(String dataDirPath) {
+        this(dataDirPath, null);
+    }
+
+    // Shards of a ShardedCriminalManager share one image store, whose reference counts span every shard
+    CriminalManager(String dataDirPath, ImageStore sharedImageStore) {
+        dataFilePath = dataDirPath + "/criminals.dat";
+        journalFilePath = dataDirPath + "/criminals.journal";
+        journal = new CriminalJournal(journalFilePath);
+        journalWriter = new GroupCommitWriter(journal, Integer.getInteger("criminals.groupCommit.maxBatch", 1000),
+                Long.getLong("criminals.groupCommit.maxLatencyMs", 0));
+        imageStore = sharedImageStore != null ? sharedImageStore : new ImageStore(imagesDirPath, this::imagePaths);
+        ensureDirectoryExists(dataDirPath);
         ensureDirectoryExists(imagesDirPath);
-        criminals = loadData();
+        criminals = createStore(journal.replay(loadData()));
         if (!criminals.isEmpty()) {
             // Find the max ID to set the next ID correctly after loading
-            nextId = criminals.stream().mapToInt(Criminal::getId).max().orElse(0) + 1;
+            nextId.set(criminals.stream().mapToInt(Criminal::getId).max().orElse(0) + 1);
         }
+        writeOrder.lock();
+        try {
+            compactIfNeeded();
+            if (!journal.hasSequenceMarker()) {
+                // A journal from before change sequences: fold it into the snapshot so the history starts here
+                if (journal.getEntryCount() == 0) {
+                    journal.reset();
+                } else {
+                    compact();
+                }
+            }
+        } finally {
+            writeOrder.unlock();
+        }
+    }
+
+    private static RecordStore<Criminal> createStore(List<Criminal> records) {
+        String kind = System.getProperty("criminals.store", "heap");
+        if (kind.equalsIgnoreCase("columnar")) {
+            ColumnarCriminalStore store = new ColumnarCriminalStore(records);
+            System.out.println("Holding " + store.size() + " criminal records off-heap ("
+                    + (store.offHeapBytes() >> 20) + " MiB direct memory).");
+            return store;
+        }
+        if (!kind.equalsIgnoreCase("heap")) {
+            System.err.println("Unknown criminals.store '" + kind + "'; using the heap store.");
+        }
+        return new RecordTable<>(Criminal::getId, records);
     }
 
     private void ensureDirectoryExists(String dirPath) {
@@ -44,60 +133,670 @@ public class CriminalManager {
 
     // --- CRUD Operations ---
 
+    // Asks for the photo in a file chooser window
     public boolean addCriminal(String name, String crime, String location, String complainant, String firDesc) {
-        // 1. Select Image using JFileChooser with GUI
-        String targetImagePath = selectAndCopyImage(nextId);
-        if (targetImagePath == null) {
-            System.out.println("Image selection cancelled or failed. Criminal not added.");
-            return false;
-        }
+        return addCriminal(name, crime, location, complainant, firDesc, chooseImage());
+    }
 
-        // 2. Create Criminal object
-        Criminal newCriminal = new Criminal(nextId, name, crime, location, complainant, firDesc, targetImagePath);
-        criminals.add(newCriminal);
-        nextId++; // Increment ID for the next criminal
+    // Headless: the photo is copied from imageFile
+    public boolean addCriminal(String name, String crime, String location, String complainant, String firDesc, Path imageFile) {
+        return addCriminal(name, crime, location, complainant, firDesc, attachImage(imageFile));
+    }
+
+    // Adds the record once the image attachment completes; a null path (cancelled) or a failed attach adds nothing
+    public boolean addCriminal(String name, String crime, String location, String complainant, String firDesc,
+                               CompletableFuture<String> image) {
+        return addCriminalAsync(name, crime, location, complainant, firDesc, image).join();
+    }
+
+    // Completes with true once the record is durable, or false if the image was cancelled or a write failed
+    public CompletableFuture<Boolean> addCriminalAsync(String name, String crime, String location, String complainant,
+                                                       String firDesc, CompletableFuture<String> image) {
+        // 1. Wait for the stored image path (nothing is locked while the user picks a file)
+        return image.handle(CriminalManager::storedImagePath).thenCompose(targetImagePath -> {
+            if (targetImagePath == null) {
+                System.out.println("Image selection cancelled or failed. Criminal not added.");
+                return CompletableFuture.completedFuture(false);
+            }
+            // 2. Create Criminal object with the next free ID, 3. publish it and journal it (no full rewrite)
+            Criminal newCriminal = new Criminal(nextId.getAndIncrement(), name, crime, location, complainant, firDesc, targetImagePath);
+            return addCriminalsAsync(Collections.singletonList(newCriminal)).thenApply(added -> {
+                if (!added) {
+                    discardImage(targetImagePath, newCriminal.getId()); // 4. Don't leak the stored photo
+                }
+                return added;
+            });
+        });
+    }
 
-        // 3. Save updated list
-        return saveData();
+    // Reserves a contiguous block of ids for records built outside addCriminal (e.g. bulk import)
+    public int reserveIds(int count) {
+        return nextId.getAndAdd(count);
     }
 
+    // Lowest id above every record added so far
+    int nextFreeId() {
+        return nextId.get();
+    }
+
+    // Adds a batch of fully built records with a single journal flush
+    public boolean addCriminals(List<Criminal> batch) {
+        return addCriminalsAsync(batch).join();
+    }
+
+    // Records are visible to readers at once; the future completes when they are durable. If the journal
+    // write fails they are taken out again before the future completes with false.
+    public CompletableFuture<Boolean> addCriminalsAsync(List<Criminal> batch) {
+        if (readOnly) {
+            return refuseWrite();
+        }
+        if (batch.isEmpty()) {
+            return CompletableFuture.completedFuture(true);
+        }
+        List<byte[]> records;
+        try {
+            records = CriminalJournal.encodeAdds(batch); // Encode before taking any lock
+        } catch (IOException e) {
+            System.err.println("Error encoding journal record: " + e.getMessage());
+            return CompletableFuture.completedFuture(false);
+        }
+        writeOrder.lock();
+        try {
+            tableLock.writeLock().lock();
+            try {
+                for (Criminal criminal : batch) {
+                    criminals.add(criminal);
+                    indexAdded(criminal);
+                    nextId.accumulateAndGet(criminal.getId() + 1, Math::max); // Keeps keyset paging's id bound valid
+                }
+            } finally {
+                tableLock.writeLock().unlock();
+            }
+            return journalAndCompact(records, () -> undoAdds(batch));
+        } finally {
+            writeOrder.unlock();
+        }
+    }
+
+    // Runs on the group-commit thread without writeOrder, so it only removes records that are still the
+    // instances added; a later delete or replacement of one of them stands
+    private void undoAdds(List<Criminal> batch) {
+        tableLock.writeLock().lock();
+        try {
+            for (Criminal criminal : batch) {
+                if (criminals.get(criminal.getId()) == criminal) {
+                    criminals.remove(criminal.getId());
+                    indexRemoved(criminal);
+                }
+            }
+        } finally {
+            tableLock.writeLock().unlock();
+        }
+    }
+
+    // Full copy of every record; listings should page with listCriminalsAfter or walk streamCriminals instead
     public List<Criminal> viewCriminals() {
-        return new ArrayList<>(criminals); // Return a copy to prevent external modification
+        return read(criminals::toList); // Return a copy to prevent external modification
+    }
+
+    public int countCriminals() {
+        return read(criminals::size);
+    }
+
+    // Keyset paging: up to pageSize records with ids above afterId, in id order. Pass the last id of a page
+    // (0 for the first) to get the next one; unlike an offset, the cursor stays put while records come and go.
+    public List<Criminal> listCriminalsAfter(int afterId, int pageSize) {
+        if (pageSize < 1) {
+            throw new IllegalArgumentException("Page size must be positive");
+        }
+        return read(() -> pageAfter(afterId, pageSize));
+    }
+
+    // Walks every record in id order without copying the store. Records are fetched in keyset pages, each
+    // under a brief read lock, so writers are never held up for the whole walk. Weakly consistent: records
+    // added or deleted during the walk may or may not be seen.
+    public Iterator<Criminal> iterateCriminals() {
+        return new Iterator<Criminal>() {
+            private List<Criminal> batch = Collections.emptyList();
+            private int position = 0;
+            private int lastId = 0;
+            private boolean exhausted = false;
+
+            @Override
+            public boolean hasNext() {
+                if (position == batch.size() && !exhausted) {
+                    batch = listCriminalsAfter(lastId, STREAM_BATCH_SIZE);
+                    position = 0;
+                    exhausted = batch.size() < STREAM_BATCH_SIZE;
+                }
+                return position < batch.size();
+            }
+
+            @Override
+            public Criminal next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                Criminal criminal = batch.get(position++);
+                lastId = criminal.getId();
+                return criminal;
+            }
+        };
+    }
+
+    public Stream<Criminal> streamCriminals() {
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(iterateCriminals(),
+                Spliterator.ORDERED | Spliterator.DISTINCT | Spliterator.NONNULL), false);
     }
 
     public boolean deleteCriminal(int id) {
-        Optional<Criminal> criminalOpt = findCriminalById(id);
-        if (criminalOpt.isPresent()) {
-            Criminal criminalToRemove = criminalOpt.get();
-            // Attempt to delete the associated image file
-            deleteImageFile(criminalToRemove.getImagePath());
+        return deleteCriminalAsync(id).join();
+    }
 
-            boolean removed = criminals.removeIf(c -> c.getId() == id);
-            if (removed) {
-                return saveData(); // Save the list after removal
+    // Completes with false if there is no such record. The record disappears at once and comes back if the
+    // journal write fails; its photo is released only once the delete is durable.
+    public CompletableFuture<Boolean> deleteCriminalAsync(int id) {
+        if (readOnly) {
+            return refuseWrite();
+        }
+        writeOrder.lock();
+        try {
+            Criminal criminalToRemove = read(() -> criminals.get(id));
+            if (criminalToRemove == null) {
+                return CompletableFuture.completedFuture(false); // Not found
             }
+            // Count references while this record is still in, or a count built later would miss it
+            imageStore.loadReferenceCounts();
+            tableLock.writeLock().lock();
+            try {
+                if (criminals.get(id) != criminalToRemove) {
+                    return CompletableFuture.completedFuture(false); // Its failed add was undone meanwhile
+                }
+                criminals.remove(id);
+                indexRemoved(criminalToRemove);
+            } finally {
+                tableLock.writeLock().unlock();
+            }
+            return journalAndCompact(Collections.singletonList(CriminalJournal.encodeDelete(id)),
+                    () -> undoDelete(criminalToRemove))
+                    .thenApply(deleted -> {
+                        if (deleted) {
+                            imageStore.release(criminalToRemove.getImagePath());
+                        }
+                        return deleted;
+                    });
+        } finally {
+            writeOrder.unlock();
+        }
+    }
+
+    // Same contract as undoAdds: puts the record back unless its id has been taken since
+    private void undoDelete(Criminal deleted) {
+        tableLock.writeLock().lock();
+        try {
+            if (criminals.get(deleted.getId()) == null) {
+                criminals.add(deleted);
+                indexAdded(deleted);
+            }
+        } finally {
+            tableLock.writeLock().unlock();
         }
-        return false; // Not found or removal failed
+    }
+
+    public boolean isReadOnly() {
+        return readOnly;
+    }
+
+    // A follower must take changes only from its primary, or its history would fork
+    public void setReadOnly(boolean readOnly) {
+        this.readOnly = readOnly;
+    }
+
+    private static CompletableFuture<Boolean> refuseWrite() {
+        System.out.println("This node is a read-only replica. Make changes on the primary.");
+        return CompletableFuture.completedFuture(false);
+    }
+
+    // Queues the records for the next group commit; callers hold writeOrder. The future reports whether the
+    // records are durable - a failed compaction does not undo them and is retried later
+    private CompletableFuture<Boolean> journalAndCompact(List<byte[]> records) {
+        return journalAndCompact(records, null);
+    }
+
+    // undo takes back the in-memory change if the journal write fails
+    private CompletableFuture<Boolean> journalAndCompact(List<byte[]> records, Runnable undo) {
+        CompletableFuture<Boolean> durable = journalWriter.submit(records, undo);
+        compactIfNeeded();
+        return durable;
     }
 
     public Optional<Criminal> findCriminalById(int id) {
-        return criminals.stream().filter(c -> c.getId() == id).findFirst();
+        return Optional.ofNullable(read(() -> criminals.get(id)));
     }
 
     public List<Criminal> findCriminalByName(String name) {
         if (name == null || name.trim().isEmpty()) {
             return new ArrayList<>(); // Return empty list for null or empty query
         }
-        String lowerCaseName = name.toLowerCase();
-        return criminals.stream()
-                .filter(c -> c.getName().toLowerCase().contains(lowerCaseName)) // Use contains() for partial matching
-                .collect(Collectors.toList());
+        CriminalSearchIndex index = searchIndex();
+        return read(() -> toCriminals(index.nameContains(name)));
+    }
+
+    // Every record matching the query, in id order (unranked)
+    public List<Criminal> findCriminals(CriminalQuery query) {
+        CriminalSearchIndex index = searchIndex();
+        return read(() -> toCriminals(query.evaluate(index)));
+    }
+
+    public List<Criminal> findCriminalsInRange(int fromId, int toId) {
+        return read(() -> rangeScan(fromId, toId));
+    }
+
+    private List<Criminal> rangeScan(int fromId, int toId) {
+        List<Criminal> results = new ArrayList<>();
+        if ((long) toId - fromId < criminals.size()) {
+            for (long id = fromId; id <= toId; id++) { // Narrow range: probe the id index (long, so toId = MAX_VALUE ends)
+                Criminal criminal = criminals.get((int) id);
+                if (criminal != null) {
+                    results.add(criminal);
+                }
+            }
+        } else {
+            criminals.forEach(c -> {
+                if (c.getId() >= fromId && c.getId() <= toId) {
+                    results.add(c);
+                }
+            });
+        }
+        return results;
+    }
+
+    // Ranked, paginated search; pageNumber is 1-based
+    public Page<Criminal> search(CriminalQuery query, int pageNumber, int pageSize) {
+        if (pageNumber < 1 || pageSize < 1) {
+            throw new IllegalArgumentException("Page number and page size must be positive");
+        }
+        CriminalSearchIndex index = searchIndex();
+        int[] ids;
+        double[] scores;
+        tableLock.readLock().lock();
+        try {
+            ids = query.evaluate(index);
+            scores = new double[ids.length];
+            for (int i = 0; i < ids.length; i++) {
+                scores[i] = query.score(index, ids[i]);
+            }
+        } finally {
+            tableLock.readLock().unlock();
+        }
+
+        // Rank by score (highest first), then by id for a stable order; sorting needs no lock
+        Integer[] order = new Integer[ids.length];
+        for (int i = 0; i < ids.length; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> scores[a] != scores[b] ? Double.compare(scores[b], scores[a]) : Integer.compare(ids[a], ids[b]));
+
+        int from = Math.min(ids.length, (pageNumber - 1) * pageSize);
+        int to = Math.min(ids.length, from + pageSize);
+        List<Criminal> items = read(() -> {
+            List<Criminal> page = new ArrayList<>(to - from);
+            for (int i = from; i < to; i++) {
+                Criminal criminal = criminals.get(ids[order[i]]); // May have been deleted since ranking
+                if (criminal != null) {
+                    page.add(criminal);
+                }
+            }
+            return page;
+        });
+        return new Page<>(items, pageNumber, pageSize, ids.length);
+    }
+
+    // Ids are handed out in increasing order, so probing the id index upwards from afterId fills a page in
+    // about pageSize lookups; a long run of deleted ids is left to one scan once the probe budget is spent
+    private List<Criminal> pageAfter(int afterId, int pageSize) {
+        List<Criminal> page = new ArrayList<>(Math.min(pageSize, criminals.size()));
+        int maxId = nextId.get() - 1;
+        int id = Math.max(afterId, 0);
+        long budget = PROBE_BUDGET + 4L * pageSize;
+        while (page.size() < pageSize && id < maxId) {
+            if (--budget < 0) {
+                page.addAll(scanAfter(id, pageSize - page.size()));
+                break;
+            }
+            Criminal criminal = criminals.get(++id);
+            if (criminal != null) {
+                page.add(criminal);
+            }
+        }
+        return page;
+    }
+
+    // For ShardedCriminalManager: the records with the given ids that are in this store, under one read lock
+    List<Criminal> findCriminalsByIds(int[] ids) {
+        return read(() -> toCriminals(ids));
+    }
+
+    // For ShardedCriminalManager: a keyset page found by one bounded scan, for stores whose ids are not dense
+    List<Criminal> scanCriminalsAfter(int afterId, int limit) {
+        return read(() -> scanAfter(afterId, limit));
+    }
+
+    // The limit lowest-id records above afterId, in id order, from a single pass over the store
+    private List<Criminal> scanAfter(int afterId, int limit) {
+        PriorityQueue<Criminal> lowest = new PriorityQueue<>(Comparator.comparingInt(Criminal::getId).reversed());
+        criminals.forEach(c -> {
+            if (c.getId() > afterId && (lowest.size() < limit || c.getId() < lowest.peek().getId())) {
+                if (lowest.size() == limit) {
+                    lowest.poll();
+                }
+                lowest.add(c);
+            }
+        });
+        List<Criminal> result = new ArrayList<>(lowest);
+        result.sort(Comparator.comparingInt(Criminal::getId));
+        return result;
+    }
+
+    private List<Criminal> toCriminals(int[] ids) {
+        List<Criminal> results = new ArrayList<>(ids.length);
+        for (int id : ids) {
+            Criminal criminal = criminals.get(id);
+            if (criminal != null) {
+                results.add(criminal);
+            }
+        }
+        return results;
+    }
+
+
+    // --- Statistics ---
+
+    // Record counts per value of the field, largest first; k limits the result to the top k groups (0 = all)
+    public List<CriminalStatistics.Count> topCounts(CriminalStatistics.Field field, int k) {
+        CriminalStatistics stats = statistics();
+        return read(() -> stats.top(field, k));
+    }
+
+    public List<CriminalStatistics.Count> countBy(CriminalStatistics.Field field) {
+        return topCounts(field, 0);
+    }
+
+    // Distinct non-empty values of the field
+    public int distinctCount(CriminalStatistics.Field field) {
+        CriminalStatistics stats = statistics();
+        return read(() -> stats.distinct(field));
+    }
+
+    // Runs a read-only action under the shared lock
+    private <T> T read(Supplier<T> action) {
+        tableLock.readLock().lock();
+        try {
+            return action.get();
+        } finally {
+            tableLock.readLock().unlock();
+        }
+    }
+
+
+    // --- Change sequence and deltas ---
+
+    // Random id of this store's change history; a replica only applies incremental deltas from the same history
+    public long getStoreId() {
+        return journal.getStoreId();
+    }
+
+    // Number of changes journaled since the history began
+    public long getChangeSequence() {
+        writeOrder.lock();
+        try {
+            journalWriter.drain(); // Queued records are already counted once written
+            return journal.getSequence();
+        } finally {
+            writeOrder.unlock();
+        }
+    }
+
+    // Replication: called with each batch of journaled change records once durable, in sequence order, on the
+    // group-commit thread, so it must not block; null removes it
+    public void setChangeListener(CriminalJournal.AppendListener listener) {
+        journal.setAppendListener(listener);
+    }
+
+    // The changes a replica at (storeId, sinceSequence) is missing. If they are no longer retained in the
+    // journal, or the replica follows another history, the delta is a reset carrying every record instead.
+    // Writers wait only while the sequence is captured; the records are read and encoded afterwards.
+    public CriminalDelta exportDelta(long storeId, long sinceSequence) {
+        long currentStoreId;
+        long sequence;
+        CriminalJournal.ChangeReader changes = null;
+        List<Criminal> all = null;
+        writeOrder.lock();
+        try {
+            journalWriter.drain();
+            currentStoreId = journal.getStoreId();
+            sequence = journal.getSequence();
+            if (storeId == currentStoreId) {
+                changes = journal.openChangesSince(sinceSequence);
+            }
+            if (changes == null) {
+                all = read(criminals::toList);
+            }
+        } finally {
+            writeOrder.unlock();
+        }
+        if (changes != null) {
+            try (CriminalJournal.ChangeReader reader = changes) {
+                return new CriminalDelta(storeId, sinceSequence, sequence, false, reader.read());
+            } catch (IOException e) {
+                System.err.println("Error reading changes from journal " + journalFilePath + ": " + e.getMessage());
+                return exportDelta(0, 0); // Store id 0 is never used, so this is a reset
+            }
+        }
+        try {
+            return new CriminalDelta(currentStoreId, 0, sequence, true, CriminalJournal.encodeAdds(all));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e); // ByteArrayOutputStream does not throw
+        }
+    }
+
+    // Brings this store up to the delta's sequence, journaling the same changes so its own sequence follows
+    // the exporting store's. Images are not carried: replicas keep the image paths only. Throws
+    // IllegalStateException if an incremental delta does not start at or before this store's sequence.
+    public boolean applyDelta(CriminalDelta delta) {
+        List<CriminalJournal.Change> changes = new ArrayList<>(delta.getRecords().size());
+        try {
+            for (byte[] record : delta.getRecords()) { // Decode before taking any lock
+                changes.add(CriminalJournal.Change.decode(record));
+            }
+        } catch (IOException | RuntimeException e) {
+            System.err.println("Error decoding delta record: " + e.getMessage());
+            return false;
+        }
+        CompletableFuture<Boolean> durable;
+        writeOrder.lock();
+        try {
+            journalWriter.drain();
+            if (delta.isReset()) {
+                return applyReset(delta, changes);
+            }
+            long sequence = journal.getSequence();
+            if (delta.getStoreId() != journal.getStoreId() || sequence < delta.getFromSequence()
+                    || sequence > delta.getToSequence()) {
+                throw new IllegalStateException("Delta " + delta + " does not continue this store (store "
+                        + Long.toHexString(journal.getStoreId()) + " at sequence " + sequence
+                        + "); export a new delta from sequence " + Long.toHexString(journal.getStoreId()) + ":" + sequence);
+            }
+            int skip = (int) (sequence - delta.getFromSequence()); // Already applied by an earlier delta
+            if (skip == changes.size()) {
+                return true;
+            }
+            tableLock.writeLock().lock();
+            try {
+                for (CriminalJournal.Change change : changes.subList(skip, changes.size())) {
+                    applyChange(change);
+                }
+            } finally {
+                tableLock.writeLock().unlock();
+            }
+            durable = journalAndCompact(delta.getRecords().subList(skip, changes.size()));
+        } finally {
+            writeOrder.unlock();
+        }
+        return durable.join();
+    }
+
+    // Replaces every record; callers hold writeOrder with the journal drained
+    private boolean applyReset(CriminalDelta delta, List<CriminalJournal.Change> changes) {
+        // Detach the old journal first: after a crash part-way, the old records must not replay over the new
+        // snapshot, and the interim history id makes the next delta a reset again
+        if (!journal.restart(CriminalJournal.newStoreId(), 0)) {
+            return false;
+        }
+        tableLock.writeLock().lock();
+        try {
+            criminals.clear();
+            searchIndex = null; // Rebuilt on next use
+            statistics = null;
+            nextId.set(1);
+            for (CriminalJournal.Change change : changes) {
+                applyChange(change);
+            }
+        } finally {
+            tableLock.writeLock().unlock();
+        }
+        return saveData() && journal.restart(delta.getStoreId(), delta.getToSequence());
+    }
+
+    // Callers hold the write lock
+    private void applyChange(CriminalJournal.Change change) {
+        Criminal removed = criminals.remove(change.id);
+        if (removed != null) {
+            indexRemoved(removed);
+        }
+        if (change.added != null) {
+            criminals.add(change.added);
+            indexAdded(change.added);
+            nextId.accumulateAndGet(change.id + 1, Math::max);
+        }
+    }
+
+
+    // --- Secondary indexes ---
+
+    // Must be called before taking the read lock: the first call builds the index under the write lock
+    private CriminalSearchIndex searchIndex() {
+        CriminalSearchIndex index = searchIndex;
+        if (index == null) {
+            tableLock.writeLock().lock();
+            try {
+                if (searchIndex == null) {
+                    searchIndex = new CriminalSearchIndex(criminals);
+                }
+                index = searchIndex;
+            } finally {
+                tableLock.writeLock().unlock();
+            }
+        }
+        return index;
+    }
+
+    // Same contract as searchIndex()
+    private CriminalStatistics statistics() {
+        CriminalStatistics stats = statistics;
+        if (stats == null) {
+            tableLock.writeLock().lock();
+            try {
+                if (statistics == null) {
+                    statistics = new CriminalStatistics(criminals);
+                }
+                stats = statistics;
+            } finally {
+                tableLock.writeLock().unlock();
+            }
+        }
+        return stats;
+    }
+
+    // Callers hold the write lock
+
+    private void indexAdded(Criminal criminal) {
+        if (searchIndex != null) {
+            searchIndex.add(criminal);
+        }
+        if (statistics != null) {
+            statistics.add(criminal);
+        }
+    }
+
+    private void indexRemoved(Criminal criminal) {
+        if (searchIndex != null) {
+            searchIndex.remove(criminal);
+        }
+        if (statistics != null) {
+            statistics.remove(criminal);
+        }
     }
 
 
     // --- Image Handling ---
 
-    private String selectAndCopyImage(int criminalId) {
+    // Copies the image into the image store off the caller's thread; completes with the stored path
+    public CompletableFuture<String> attachImage(Path source) {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return imageStore.store(source);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }, imageExecutor);
+    }
+
+    // As above for image bytes from any stream (e.g. an upload); the stream is read to the end and closed
+    public CompletableFuture<String> attachImage(InputStream source, String extension) {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return imageStore.store(source, extension);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }, imageExecutor);
+    }
+
+    // Drops the reference attachImage or copyImage took for a record whose add failed, so an unused photo is
+    // deleted. Kept if the record is in memory after all (added, but its journal write failed).
+    public void discardImage(String imagePath, int recordId) {
+        if (imagePath == null) return;
+        writeOrder.lock(); // No add of recordId can slip in between the check and the release
+        try {
+            Criminal record = read(() -> criminals.get(recordId));
+            if (record == null || !imagePath.equals(record.getImagePath())) {
+                imageStore.release(imagePath);
+            }
+        } finally {
+            writeOrder.unlock();
+        }
+    }
+
+    // Opens a file chooser window; completes with the stored path, or null if the user cancels.
+    // Nothing waits on the window: the chooser's own callbacks complete the future.
+    public CompletableFuture<String> chooseImage() {
+        CompletableFuture<String> chosen = new CompletableFuture<>();
+        if (SessionConsole.isRemote()) { // The window would open on this host, not in front of the remote operator
+            chosen.completeExceptionally(new IOException("remote sessions cannot open the file chooser; give the photo's file path instead"));
+            return chosen;
+        }
+        SwingUtilities.invokeLater(() -> {
+            try {
+                showImageChooser(chosen);
+            } catch (HeadlessException e) {
+                chosen.completeExceptionally(new IOException("no display for the file chooser; give the photo's file path instead"));
+            }
+        });
+        return chosen;
+    }
+
+    private void showImageChooser(CompletableFuture<String> chosen) {
         JFrame imageSelectFrame = new JFrame("Select Criminal's Photo");
         imageSelectFrame.setDefaultCloseOperation(JFrame.DISPOSE_ON_CLOSE);
         imageSelectFrame.setLayout(new FlowLayout());
@@ -107,8 +806,6 @@ public class CriminalManager {
         JButton selectButton = new JButton("Select Image");
         imageSelectFrame.add(selectButton);
 
-        final String[] imagePathHolder = {null}; // To hold the selected image path
-
         selectButton.addActionListener(new ActionListener() {
             @Override
             public void actionPerformed(ActionEvent e) {
@@ -119,90 +816,175 @@ public class CriminalManager {
                 fileChooser.addChoosableFileFilter(filter);
 
                 int returnValue = fileChooser.showOpenDialog(imageSelectFrame); // Use the GUI window as parent
+                imageSelectFrame.dispose(); // Close the GUI window after selection
 
                 if (returnValue == JFileChooser.APPROVE_OPTION) {
                     File selectedFile = fileChooser.getSelectedFile();
-                    try {
-                        String originalFileName = selectedFile.getName();
-                        String fileExtension = "";
-                        int dotIndex = originalFileName.lastIndexOf('.');
-                        if (dotIndex > 0 && dotIndex < originalFileName.length() - 1) {
-                            fileExtension = originalFileName.substring(dotIndex); // Includes the dot
+                    attachImage(selectedFile.toPath()).whenComplete((path, error) -> {
+                        if (error != null) {
+                            chosen.completeExceptionally(error);
+                        } else {
+                            chosen.complete(path);
                         }
-
-                        String targetFileName = "criminal_" + criminalId + fileExtension;
-                        Path targetPath = Paths.get(imagesDirPath, targetFileName);
-                        Files.copy(selectedFile.toPath(), targetPath, StandardCopyOption.REPLACE_EXISTING);
-                        System.out.println("Image copied to: " + targetPath.toAbsolutePath());
-                        imagePathHolder[0] = targetPath.toString().replace("\\", "/");
-                    } catch (IOException ex) {
-                        System.err.println("Error copying image file: " + ex.getMessage());
-                        imagePathHolder[0] = null;
-                    } finally {
-                        imageSelectFrame.dispose(); // Close the GUI window after selection
-                    }
+                    });
                 } else {
                     System.out.println("Image selection cancelled by user.");
-                    imagePathHolder[0] = null;
-                    imageSelectFrame.dispose(); // Close the GUI window if cancelled
+                    chosen.complete(null);
                 }
             }
         });
+        imageSelectFrame.addWindowListener(new WindowAdapter() {
+            @Override
+            public void windowClosing(WindowEvent e) {
+                System.out.println("Image selection cancelled by user.");
+                chosen.complete(null); // Window closed without choosing a file
+            }
+        });
 
         imageSelectFrame.setVisible(true);
+    }
 
-        // Wait for the image selection to complete before returning the path
-        while (imageSelectFrame.isVisible()) {
-            try {
-                Thread.sleep(100); // Small delay to avoid busy-waiting
-            } catch (InterruptedException e) {
-                Thread.currentThread().interrupt();
+    // Result of an image attachment: the stored path, or null (with a message) if it was cancelled or failed
+    static String storedImagePath(String path, Throwable error) {
+        if (error != null) {
+            Throwable cause = error;
+            while ((cause instanceof CompletionException || cause instanceof UncheckedIOException) && cause.getCause() != null) {
+                cause = cause.getCause();
             }
+            String reason = cause instanceof NoSuchFileException ? "file not found: " + cause.getMessage() : cause.getMessage();
+            System.err.println("Error copying image file: " + reason);
+            return null;
+        }
+        if (path != null) {
+            System.out.println("Image stored at: " + Paths.get(path).toAbsolutePath());
+        }
+        return path;
+    }
+
+    // Stores an image in the content-addressed image store; returns the stored path or null on failure
+    public String copyImage(Path source) {
+        try {
+            String targetPath = imageStore.store(source);
+            System.out.println("Image stored at: " + Paths.get(targetPath).toAbsolutePath());
+            return targetPath;
+        } catch (IOException e) {
+            System.err.println("Error copying image file: " + e.getMessage());
+            return null;
         }
+    }
 
-        return imagePathHolder[0];
+    Iterable<String> imagePaths() {
+        return read(() -> {
+            List<String> paths = new ArrayList<>(criminals.size());
+            criminals.forEach(c -> paths.add(c.getImagePath()));
+            return paths;
+        });
     }
 
-    private void deleteImageFile(String imagePath) {
-        if (imagePath != null && !imagePath.isEmpty()) {
-            try {
-                Path path = Paths.get(imagePath);
-                if (Files.exists(path)) {
-                    Files.delete(path);
-                    System.out.println("Deleted associated image: " + imagePath);
-                }
-            } catch (IOException e) {
-                System.err.println("Error deleting image file " + imagePath + ": " + e.getMessage());
-                // Log error, but don't necessarily stop the criminal deletion
+
+    // --- Data Persistence (RecordCodec snapshot + journal) ---
+
+    private List<Criminal> loadData() {
+        File dataFile = new File(dataFilePath);
+        if (!dataFile.exists()) {
+            System.out.println("Data file (" + dataFilePath + ") not found. Starting with empty criminal list.");
+            return new ArrayList<>();
+        }
+        if (dataFile.length() == 0) {
+            System.out.println("Data file (" + dataFilePath + ") is empty. Starting with empty criminal list.");
+            return new ArrayList<>();
+        }
+        if (RecordCodec.isLegacySerializedFile(dataFile)) {
+            return migrateLegacyData();
+        }
+        try {
+            // Block checksums are verified on open; after that only ids and record offsets are read here,
+            // and fields are decoded from the mapping on demand
+            MappedCriminalFile snapshot = MappedCriminalFile.open(dataFile.toPath());
+            List<Criminal> loaded = snapshot.loadCriminals();
+            System.out.println("Criminal data loaded successfully from " + dataFilePath);
+            if (snapshot.getVersion() < RecordCodec.VERSION && writeSnapshot(loaded)) {
+                System.out.println("Upgraded " + dataFilePath + " to record format version " + RecordCodec.VERSION);
             }
+            return loaded;
+        } catch (IOException e) {
+            throw unreadableData(e);
         }
     }
 
+    // Never carry on with an empty list: the next compaction would overwrite the damaged file for good
+    private IllegalStateException unreadableData(Exception cause) {
+        System.err.println("Error loading criminal data from " + dataFilePath + ": " + cause.getMessage());
+        return new IllegalStateException("Cannot load " + dataFilePath + " (" + cause.getMessage()
+                + "). Restore it from a backup, or move it aside to start with an empty list.", cause);
+    }
 
-    // --- Data Persistence (Serialization) ---
+    // Reads a .dat file written by the old ObjectOutputStream format and rewrites it with RecordCodec
+    private List<Criminal> migrateLegacyData() {
+        List<Criminal> legacy = loadLegacyData();
+        if (!legacy.isEmpty() && writeSnapshot(legacy)) {
+            System.out.println("Migrated " + legacy.size() + " criminal records in " + dataFilePath + " to the binary record format.");
+        }
+        return legacy;
+    }
 
     @SuppressWarnings("unchecked") // Suppress warning for cast from Object
-    private List<Criminal> loadData() {
-        try (ObjectInputStream ois = new ObjectInputStream(new FileInputStream(dataFilePath))) {
+    private List<Criminal> loadLegacyData() {
+        try (ObjectInputStream ois = new ObjectInputStream(new BufferedInputStream(new FileInputStream(dataFilePath)))) {
             Object obj = ois.readObject();
             if (obj instanceof List) {
-                System.out.println("Criminal data loaded successfully from " + dataFilePath);
-                return (List<Criminal>) obj;
+                System.out.println("Criminal data loaded successfully from legacy file " + dataFilePath);
+                return new ArrayList<>((List<Criminal>) obj);
             }
-        } catch (FileNotFoundException e) {
-            System.out.println("Data file (" + dataFilePath + ") not found. Starting with empty criminal list.");
-        } catch (EOFException e) {
-            System.out.println("Data file (" + dataFilePath + ") is empty. Starting with empty criminal list.");
         } catch (IOException | ClassNotFoundException e) {
-            System.err.println("Error loading criminal data from " + dataFilePath + ": " + e.getMessage());
-            // Consider more robust error handling: backup, notify user, etc.
+            throw unreadableData(e);
+        }
+        return new ArrayList<>();
+    }
+
+    // Rewrites the snapshot and clears the journal once enough entries have piled up; callers hold writeOrder.
+    // After a failure the journal still holds every change, so the next attempt waits for another threshold's
+    // worth of entries instead of rewriting the snapshot on every write.
+    private void compactIfNeeded() {
+        int threshold = Math.max(COMPACTION_THRESHOLD, read(criminals::size));
+        int entries = journal.getEntryCount();
+        if (entries < threshold || entries < compactionRetryAt) {
+            return;
+        }
+        if (compact()) {
+            compactionRetryAt = 0;
+        } else {
+            compactionRetryAt = entries + threshold;
+            System.err.println("Compaction of " + journalFilePath + " failed; the journal keeps every change."
+                    + " Retrying after " + threshold + " more entries.");
+        }
+    }
+
+    public boolean compact() {
+        writeOrder.lock(); // Blocks other writers until the journal is reset; readers carry on
+        try {
+            journalWriter.drain(); // Everything queued reaches the old journal before it is replaced
+            if (!saveData()) {
+                return false; // Keep the journal; the old snapshot plus journal is still complete
+            }
+            return journal.reset();
+        } finally {
+            writeOrder.unlock();
         }
-        return new ArrayList<>(); // Return empty list if loading fails or file doesn't exist
     }
 
     private boolean saveData() {
-        try (ObjectOutputStream oos = new ObjectOutputStream(new FileOutputStream(dataFilePath))) {
-            oos.writeObject(criminals);
+        return writeSnapshot(read(criminals::toList)); // Copy under the read lock, write to disk without it
+    }
+
+    // Written to a synced temp file and atomically renamed over the snapshot, so a crash leaves either the
+    // old or the new snapshot intact and the currently mapped file is never truncated
+    private boolean writeSnapshot(List<Criminal> records) {
+        try {
+            AtomicFile.write(Paths.get(dataFilePath), out -> {
+                RecordCodec.writeCriminals(out, records);
+                records.forEach(Criminal::detach); // Nothing may keep the replaced snapshot's mapping alive
+            });
             System.out.println("Criminal data saved successfully to " + dataFilePath);
             return true;
         } catch (IOException e) {
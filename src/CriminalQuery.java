@@ -0,0 +1,190 @@
+import java.util.List;
+import java.util.Set;
+
+// Composable search over criminal records, evaluated against CriminalSearchIndex posting lists.
+// Build queries with the static factories, e.g.
+//   CriminalQuery.and(CriminalQuery.crimeIs("Burglary"), CriminalQuery.locationIs("Chennai"))
+public abstract class CriminalQuery {
+
+    // Sorted ids of all matching records
+    abstract int[] evaluate(CriminalSearchIndex index);
+
+    abstract boolean matches(CriminalSearchIndex index, int id);
+
+    // Relevance of a matching record; higher scores rank first
+    abstract double score(CriminalSearchIndex index, int id);
+
+    // --- Factories ---
+
+    public static CriminalQuery crimeIs(String crime) {
+        return new FieldEquals("crime", crime) {
+            ExactMatchIndex field(CriminalSearchIndex index) { return index.crimes; }
+        };
+    }
+
+    public static CriminalQuery locationIs(String location) {
+        return new FieldEquals("location", location) {
+            ExactMatchIndex field(CriminalSearchIndex index) { return index.locations; }
+        };
+    }
+
+    public static CriminalQuery complainantIs(String complainant) {
+        return new FieldEquals("complainant", complainant) {
+            ExactMatchIndex field(CriminalSearchIndex index) { return index.complainants; }
+        };
+    }
+
+    public static CriminalQuery nameContains(String name) {
+        return new NameContains(name);
+    }
+
+    // Records whose FIR description contains every keyword
+    public static CriminalQuery firMentions(String keywords) {
+        return new FirMentions(TextIndex.tokenize(keywords));
+    }
+
+    public static CriminalQuery and(CriminalQuery... clauses) {
+        return new Compound(true, clauses);
+    }
+
+    public static CriminalQuery or(CriminalQuery... clauses) {
+        return new Compound(false, clauses);
+    }
+
+    public static CriminalQuery and(List<CriminalQuery> clauses) {
+        return and(clauses.toArray(new CriminalQuery[0]));
+    }
+
+    public static CriminalQuery or(List<CriminalQuery> clauses) {
+        return or(clauses.toArray(new CriminalQuery[0]));
+    }
+
+    // --- Clause types ---
+
+    private abstract static class FieldEquals extends CriminalQuery {
+        private final String label;
+        private final String value;
+
+        FieldEquals(String label, String value) {
+            this.label = label;
+            this.value = value;
+        }
+
+        abstract ExactMatchIndex field(CriminalSearchIndex index);
+
+        int[] evaluate(CriminalSearchIndex index) { return field(index).lookup(value); }
+
+        boolean matches(CriminalSearchIndex index, int id) { return field(index).contains(value, id); }
+
+        double score(CriminalSearchIndex index, int id) { return 1.0; }
+
+        @Override
+        public String toString() { return label + " = \"" + value + "\""; }
+    }
+
+    private static final class NameContains extends CriminalQuery {
+        private final String name;
+
+        NameContains(String name) {
+            this.name = name;
+        }
+
+        int[] evaluate(CriminalSearchIndex index) { return index.nameContains(name); }
+
+        boolean matches(CriminalSearchIndex index, int id) {
+            Criminal criminal = index.get(id);
+            return criminal != null && NameIndex.normalize(criminal.getName()).contains(NameIndex.normalize(name));
+        }
+
+        double score(CriminalSearchIndex index, int id) { return 1.0; }
+
+        @Override
+        public String toString() { return "name contains \"" + name + "\""; }
+    }
+
+    private static final class FirMentions extends CriminalQuery {
+        private final Set<String> tokens;
+
+        FirMentions(Set<String> tokens) {
+            this.tokens = tokens;
+        }
+
+        int[] evaluate(CriminalSearchIndex index) {
+            return tokens.isEmpty() ? new int[0] : index.firText.lookupAll(tokens);
+        }
+
+        boolean matches(CriminalSearchIndex index, int id) {
+            if (tokens.isEmpty()) return false;
+            for (String token : tokens) {
+                if (!index.firText.contains(token, id)) return false;
+            }
+            return true;
+        }
+
+        // Rarer keywords weigh more (inverse document frequency)
+        double score(CriminalSearchIndex index, int id) {
+            double total = 0;
+            int records = Math.max(1, index.recordCount());
+            for (String token : tokens) {
+                int df = Math.max(1, index.firText.documentFrequency(token));
+                total += Math.log(1.0 + (double) records / df);
+            }
+            return total;
+        }
+
+        @Override
+        public String toString() { return "FIR mentions " + tokens; }
+    }
+
+    private static final class Compound extends CriminalQuery {
+        private final boolean all;
+        private final CriminalQuery[] clauses;
+
+        Compound(boolean all, CriminalQuery[] clauses) {
+            if (clauses.length == 0) {
+                throw new IllegalArgumentException("Compound query needs at least one clause");
+            }
+            this.all = all;
+            this.clauses = clauses.clone();
+        }
+
+        int[] evaluate(CriminalSearchIndex index) {
+            int[] result = clauses[0].evaluate(index);
+            for (int i = 1; i < clauses.length; i++) {
+                if (all && result.length == 0) break;
+                int[] next = clauses[i].evaluate(index);
+                result = all ? PostingList.intersect(result, next) : PostingList.union(result, next);
+            }
+            return result;
+        }
+
+        boolean matches(CriminalSearchIndex index, int id) {
+            for (CriminalQuery clause : clauses) {
+                if (clause.matches(index, id) != all) return !all;
+            }
+            return all;
+        }
+
+        // AND sums every clause; OR sums the clauses the record satisfies, so more hits rank higher
+        double score(CriminalSearchIndex index, int id) {
+            double total = 0;
+            for (CriminalQuery clause : clauses) {
+                if (all || clause.matches(index, id)) {
+                    total += clause.score(index, id);
+                }
+            }
+            return total;
+        }
+
+        @Override
+        public String toString() {
+            String joiner = all ? " AND " : " OR ";
+            StringBuilder sb = new StringBuilder("(");
+            for (int i = 0; i < clauses.length; i++) {
+                if (i > 0) sb.append(joiner);
+                sb.append(clauses[i]);
+            }
+            return sb.append(")").toString();
+        }
+    }
+}
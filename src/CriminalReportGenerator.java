@@ -1,8 +1,12 @@
 import java.awt.Desktop;
-import java.io.BufferedWriter;
+import java.io.BufferedOutputStream;
 import java.io.File;
-import java.io.FileWriter;
+import java.io.FileOutputStream;
+import java.io.FilterOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
@@ -11,9 +15,86 @@ import java.util.Base64;
 public class CriminalReportGenerator {
 
     private final String reportsDirPath = "reports/";
+    private final String customTemplatePath = "templates/criminal_report.html"; // Optional override of DEFAULT_TEMPLATE
+    private final ReportTemplate template;
+
+    private static final int OUTPUT_BUFFER_SIZE = 64 * 1024;
+    private static final int IMAGE_CHUNK_SIZE = 48 * 1024; // Multiple of 3, so chunks encode without carry-over
+    private static final byte[] NO_IMAGE_HTML = "<p>No image available or error loading image.</p>".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] IMAGE_TAG_END = "\" alt=\"Criminal Photo\" style=\"max-width: 300px; height: auto; border: 1px solid #ccc; padding: 5px;\">".getBytes(StandardCharsets.US_ASCII);
+
+    // Simplified HTML Structure with positioned headings
+    static final String DEFAULT_TEMPLATE = "<!DOCTYPE html>\n" +
+            "<html lang=\"en\">\n" +
+            "<head>\n" +
+            "    <meta charset=\"UTF-8\">\n" +
+            "    <meta name=\"viewport\" content=\"width=device-width, initial-scale=1.0\">\n" +
+            "    <title>Criminal Report - {{name}}</title>\n" +
+            "    <style>\n" +
+            "        body { font-family: sans-serif; margin: 20px; background-color: #fff; color: #000; }\n" +
+            "        .container { background-color: #fff; padding: 30px; border-radius: 8px; box-shadow: 0 2px 5px rgba(0,0,0,0.1); max-width: 800px; margin: auto; position: relative; }\n" +
+            "        h1 { color: #333; border-bottom: 1px solid #ccc; padding-bottom: 10px; }\n" +
+            "        h2 { color: #555; margin-top: 20px; }\n" +
+            "        p { line-height: 1.6; }\n" +
+            "        strong { color: #555; }\n" +
+            "        .details-section { margin-bottom: 15px; border-bottom: 1px solid #eee; padding-bottom: 10px; }\n" +
+            "        .details-section:last-child { border-bottom: none; }\n" +
+            "        .image-section { text-align: center; margin-top: 20px; }\n" +
+            "        .crime-branch { position: absolute; top: 10px; left: 10px; font-size: small; color: #777; }\n" +
+            "        .raw-division { position: absolute; top: 10px; right: 10px; font-size: small; color: #777; }\n" +
+            "    </style>\n" +
+            "</head>\n" +
+            "<body>\n" +
+            "    <div class=\"container\">\n" +
+            "        <div class=\"crime-branch\">Crime Branch Division</div>\n" +
+            "        <div class=\"raw-division\">RAW Division</div>\n" +
+            "        <h1>Criminal Report</h1>\n" +
+
+            "        <div class=\"details-section\">\n" +
+            "            <h2>Identification</h2>\n" +
+            "            <p><strong>ID:</strong> {{id}}</p>\n" +
+            "            <p><strong>Name:</strong> {{name}}</p>\n" +
+            "        </div>\n" +
+
+            "        <div class=\"details-section\">\n" +
+            "            <h2>Case Details</h2>\n" +
+            "            <p><strong>Crime Committed:</strong> {{crime}}</p>\n" +
+            "            <p><strong>Location:</strong> {{location}}</p>\n" +
+            "            <p><strong>Complainant's Name:</strong> {{complainant}}</p>\n" +
+            "        </div>\n" +
+
+            "        <div class=\"details-section\">\n" +
+            "            <h2>FIR Description</h2>\n" +
+            "            <p style=\"white-space: pre-wrap;\">{{fir}}</p>\n" + // pre-wrap preserves whitespace
+            "        </div>\n" +
+
+            "        <div class=\"image-section\">\n" +
+            "            <h2>Photo</h2>\n" +
+            "            {{image}}\n" + // Embed the base64 image tag
+            "        </div>\n" +
+
+            "    </div>\n" +
+            "</body>\n" +
+            "</html>";
 
     public CriminalReportGenerator() {
         ensureDirectoryExists(reportsDirPath);
+        this.template = loadTemplate();
+    }
+
+    // Uses templates/criminal_report.html when a shop supplies one, otherwise the built-in layout
+    private ReportTemplate loadTemplate() {
+        Path path = Paths.get(customTemplatePath);
+        if (Files.isRegularFile(path)) {
+            try {
+                ReportTemplate custom = ReportTemplate.load(path);
+                System.out.println("Using custom report template: " + path.toAbsolutePath());
+                return custom;
+            } catch (IOException | IllegalArgumentException e) {
+                System.err.println("Error loading report template " + customTemplatePath + " (" + e.getMessage() + "). Using the default template.");
+            }
+        }
+        return ReportTemplate.parse(DEFAULT_TEMPLATE);
     }
 
     private void ensureDirectoryExists(String dirPath) {
@@ -34,76 +115,10 @@ public class CriminalReportGenerator {
             return false;
         }
 
-        // Generate a filename based on criminal ID and name
-        String safeName = criminal.getName().replaceAll("[^a-zA-Z0-9]", "_"); // Sanitize name for filename
-        String reportFileName = "criminal_report_" + criminal.getId() + "_" + safeName + ".html";
-        Path reportFilePath = Paths.get(reportsDirPath, reportFileName);
+        Path reportFilePath = reportPathFor(criminal);
         File reportFile = reportFilePath.toFile();
-
-        String base64Image = encodeImageToBase64(criminal.getImagePath());
-        String imageTag = "<p>No image available or error loading image.</p>"; // Default
-        if (base64Image != null && !base64Image.isEmpty()) {
-            String imageMimeType = getImageMimeType(criminal.getImagePath());
-            imageTag = "<img src=\"data:" + imageMimeType + ";base64," + base64Image + "\" alt=\"Criminal Photo\" style=\"max-width: 300px; height: auto; border: 1px solid #ccc; padding: 5px;\">";
-        }
-
-        // Simplified HTML Structure with positioned headings
-        String htmlContent = "<!DOCTYPE html>\n" +
-                "<html lang=\"en\">\n" +
-                "<head>\n" +
-                "    <meta charset=\"UTF-8\">\n" +
-                "    <meta name=\"viewport\" content=\"width=device-width, initial-scale=1.0\">\n" +
-                "    <title>Criminal Report - " + escapeHtml(criminal.getName()) + "</title>\n" +
-                "    <style>\n" +
-                "        body { font-family: sans-serif; margin: 20px; background-color: #fff; color: #000; }\n" +
-                "        .container { background-color: #fff; padding: 30px; border-radius: 8px; box-shadow: 0 2px 5px rgba(0,0,0,0.1); max-width: 800px; margin: auto; position: relative; }\n" +
-                "        h1 { color: #333; border-bottom: 1px solid #ccc; padding-bottom: 10px; }\n" +
-                "        h2 { color: #555; margin-top: 20px; }\n" +
-                "        p { line-height: 1.6; }\n" +
-                "        strong { color: #555; }\n" +
-                "        .details-section { margin-bottom: 15px; border-bottom: 1px solid #eee; padding-bottom: 10px; }\n" +
-                "        .details-section:last-child { border-bottom: none; }\n" +
-                "        .image-section { text-align: center; margin-top: 20px; }\n" +
-                "        .crime-branch { position: absolute; top: 10px; left: 10px; font-size: small; color: #777; }\n" +
-                "        .raw-division { position: absolute; top: 10px; right: 10px; font-size: small; color: #777; }\n" +
-                "    </style>\n" +
-                "</head>\n" +
-                "<body>\n" +
-                "    <div class=\"container\">\n" +
-                "        <div class=\"crime-branch\">Crime Branch Division</div>\n" +
-                "        <div class=\"raw-division\">RAW Division</div>\n" +
-                "        <h1>Criminal Report</h1>\n" +
-
-                "        <div class=\"details-section\">\n" +
-                "            <h2>Identification</h2>\n" +
-                "            <p><strong>ID:</strong> " + criminal.getId() + "</p>\n" +
-                "            <p><strong>Name:</strong> " + escapeHtml(criminal.getName()) + "</p>\n" +
-                "        </div>\n" +
-
-                "        <div class=\"details-section\">\n" +
-                "            <h2>Case Details</h2>\n" +
-                "            <p><strong>Crime Committed:</strong> " + escapeHtml(criminal.getCrimeCommitted()) + "</p>\n" +
-                "            <p><strong>Location:</strong> " + escapeHtml(criminal.getLocation()) + "</p>\n" +
-                "            <p><strong>Complainant's Name:</strong> " + escapeHtml(criminal.getComplainantName()) + "</p>\n" +
-                "        </div>\n" +
-
-                "        <div class=\"details-section\">\n" +
-                "            <h2>FIR Description</h2>\n" +
-                "            <p style=\"white-space: pre-wrap;\">" + escapeHtml(criminal.getFirDescription()) + "</p>\n" + // pre-wrap preserves whitespace
-                "        </div>\n" +
-
-                "        <div class=\"image-section\">\n" +
-                "            <h2>Photo</h2>\n" +
-                "            " + imageTag + "\n" + // Embed the base64 image tag
-                "        </div>\n" +
-
-                "    </div>\n" +
-                "</body>\n" +
-                "</html>";
-
-        // Write HTML to file
-        try (BufferedWriter writer = new BufferedWriter(new FileWriter(reportFile))) {
-            writer.write(htmlContent);
+        try {
+            writeReport(criminal);
             System.out.println("Report generated successfully: " + reportFilePath.toAbsolutePath());
 
             // Open the report automatically
@@ -126,21 +141,69 @@ public class CriminalReportGenerator {
         }
     }
 
-    // Helper to encode image to Base64
-    private String encodeImageToBase64(String imagePath) {
-        if (imagePath == null || imagePath.isEmpty()) return null;
-        try {
-            Path path = Paths.get(imagePath);
-            if (Files.exists(path)) {
-                byte[] imageBytes = Files.readAllBytes(path);
-                return Base64.getEncoder().encodeToString(imageBytes);
-            } else {
+    // Generate a filename based on criminal ID and name
+    public Path reportPathFor(Criminal criminal) {
+        String safeName = criminal.getName().replaceAll("[^a-zA-Z0-9]", "_"); // Sanitize name for filename
+        String reportFileName = "criminal_report_" + criminal.getId() + "_" + safeName + ".html";
+        return Paths.get(reportsDirPath, reportFileName);
+    }
+
+    // Writes the HTML report without printing or opening it; safe to call from several threads
+    public Path writeReport(Criminal criminal) throws IOException {
+        Path reportFilePath = reportPathFor(criminal);
+        File reportFile = reportFilePath.toFile();
+
+        // Stream the document straight to the file; nothing but the current buffer is held in memory
+        try (OutputStream out = new BufferedOutputStream(new FileOutputStream(reportFile), OUTPUT_BUFFER_SIZE)) {
+            writeReport(criminal, out);
+        }
+        return reportFilePath;
+    }
+
+    // Renders the HTML report into any stream (e.g. an HTTP response); the stream is left open
+    public void writeReport(Criminal criminal, OutputStream out) throws IOException {
+        template.render(criminal, out, this::writeImageTag);
+    }
+
+    // Writes an <img> tag whose data URI is Base64-encoded from the image (or its thumbnail) in fixed-size chunks
+    private void writeImageTag(String imagePath, OutputStream out) throws IOException {
+        Path path = imagePath == null || imagePath.isEmpty() ? null : Paths.get(imagePath);
+        if (path == null || !Files.isRegularFile(path)) {
+            if (path != null) {
                 System.err.println("Image file not found for encoding: " + imagePath);
-                return null;
             }
-        } catch (IOException e) {
-            System.err.println("Error reading image file for Base64 encoding " + imagePath + ": " + e.getMessage());
-            return null;
+            out.write(NO_IMAGE_HTML);
+            return;
+        }
+
+        // Embed the cached thumbnail rather than the full-resolution original when one can be made
+        Path embedded = ImageStore.thumbnailFor(path);
+        out.write(("<img src=\"data:" + getImageMimeType(embedded.toString()) + ";base64,").getBytes(StandardCharsets.US_ASCII));
+        try (InputStream in = Files.newInputStream(embedded);
+             OutputStream encoder = Base64.getEncoder().wrap(new NonClosingOutputStream(out))) {
+            byte[] buffer = new byte[IMAGE_CHUNK_SIZE];
+            int read;
+            while ((read = in.read(buffer)) > 0) {
+                encoder.write(buffer, 0, read);
+            }
+        } // Closing the encoder writes the final padding but leaves 'out' open
+        out.write(IMAGE_TAG_END);
+    }
+
+    // Lets the Base64 encoder be closed (to flush its padding) without closing the report file
+    private static class NonClosingOutputStream extends FilterOutputStream {
+        NonClosingOutputStream(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len); // FilterOutputStream would otherwise write byte by byte
+        }
+
+        @Override
+        public void close() throws IOException {
+            flush();
         }
     }
 
@@ -154,14 +217,4 @@ public class CriminalReportGenerator {
         // Default to JPEG
         return "image/jpeg";
     }
-
-    // Basic HTML escaping for preventing XSS in report
-    private String escapeHtml(String text) {
-        if (text == null) return "";
-        return text.replace("&", "&amp;")
-                .replace("<", "&lt;")
-                .replace(">", "&gt;")
-                .replace("\"", "&quot;")
-                .replace("'", "&#39;");
-    }
-}
\ No newline at end of file
+}
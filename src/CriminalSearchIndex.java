@@ -0,0 +1,66 @@
+import java.util.Arrays;
+
+// All secondary indexes over the criminal records, kept in step with the record store.
+// CriminalQuery nodes evaluate against this instead of scanning the records.
+public class CriminalSearchIndex {
+    private final RecordStore<Criminal> records;
+    final NameIndex names = new NameIndex();
+    final CodedFieldIndex crimes = new CodedFieldIndex(Criminal.CRIMES);
+    final CodedFieldIndex locations = new CodedFieldIndex(Criminal.LOCATIONS);
+    final FieldIndex complainants = new FieldIndex();
+    final TextIndex firText = new TextIndex();
+
+    public CriminalSearchIndex(RecordStore<Criminal> records) {
+        this.records = records;
+        records.forEach(this::add);
+    }
+
+    public void add(Criminal criminal) {
+        int id = criminal.getId();
+        names.add(id, criminal.getName());
+        crimes.add(id, criminal.getCrimeCode());
+        locations.add(id, criminal.getLocationCode());
+        complainants.add(id, criminal.getComplainantName());
+        firText.add(id, criminal.getFirDescription());
+    }
+
+    public void remove(Criminal criminal) {
+        int id = criminal.getId();
+        names.remove(id, criminal.getName());
+        crimes.remove(id, criminal.getCrimeCode());
+        locations.remove(id, criminal.getLocationCode());
+        complainants.remove(id, criminal.getComplainantName());
+        firText.remove(id, criminal.getFirDescription());
+    }
+
+    // Sorted ids whose name contains the query (case-insensitive)
+    public int[] nameContains(String name) {
+        String query = NameIndex.normalize(name);
+        if (!NameIndex.isIndexable(query)) {
+            // Shorter than a trigram; fall back to scanning every name
+            return records.stream()
+                    .filter(c -> NameIndex.normalize(c.getName()).contains(query))
+                    .mapToInt(Criminal::getId)
+                    .sorted()
+                    .toArray();
+        }
+        int[] candidates = names.candidates(query);
+        int kept = 0;
+        for (int id : candidates) {
+            Criminal candidate = records.get(id);
+            // Trigram hits can be out of order in the name, so confirm the real substring match
+            if (candidate != null && NameIndex.normalize(candidate.getName()).contains(query)) {
+                candidates[kept++] = id;
+            }
+        }
+        return Arrays.copyOf(candidates, kept);
+    }
+
+    public int recordCount() {
+        return records.size();
+    }
+
+    public Criminal get(int id) {
+        return records.get(id);
+    }
+}
@@ -0,0 +1,225 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+// Record counts per crime, location and complainant, kept up to date on every add and delete so that
+// group-by counts, top-K lists and distinct counts never scan the records. Crime and location are counted
+// by dictionary code in int arrays; complainants, which rarely repeat, by name in a map. Values are grouped
+// case-insensitively, as search matches them (NameIndex.normalize), and a group is shown under its most
+// common spelling.
+public class CriminalStatistics {
+
+    public enum Field {
+        CRIME("Crime"), LOCATION("Location"), COMPLAINANT("Complainant");
+
+        private final String label;
+
+        Field(String label) {
+            this.label = label;
+        }
+
+        public String getLabel() {
+            return label;
+        }
+    }
+
+    // One group of a group-by count; value is null for records that leave the field empty
+    public static final class Count {
+        private final String value;
+        private final int count;
+
+        Count(String value, int count) {
+            this.value = value;
+            this.count = count;
+        }
+
+        public String getValue() { return value; }
+        public int getCount() { return count; }
+
+        @Override
+        public String toString() {
+            return (value == null ? "(not recorded)" : value) + ": " + count;
+        }
+    }
+
+    // Largest count first, then by value
+    private static final Comparator<Count> RANKING = Comparator.comparingInt(Count::getCount).reversed()
+            .thenComparing(Count::getValue, Comparator.nullsLast(Comparator.naturalOrder()));
+
+    private final CodeCounts crimes = new CodeCounts(Criminal.CRIMES);
+    private final CodeCounts locations = new CodeCounts(Criminal.LOCATIONS);
+    private final Map<String, Integer> complainants = new HashMap<>(); // By spelling
+    private final Map<String, Integer> complainantGroups = new HashMap<>(); // By groupKey
+    private int total = 0;
+
+    public CriminalStatistics(RecordStore<Criminal> records) {
+        records.forEach(this::add);
+    }
+
+    public void add(Criminal criminal) {
+        crimes.increment(criminal.getCrimeCode());
+        locations.increment(criminal.getLocationCode());
+        complainants.merge(criminal.getComplainantName(), 1, Integer::sum);
+        complainantGroups.merge(groupKey(criminal.getComplainantName()), 1, Integer::sum);
+        total++;
+    }
+
+    public void remove(Criminal criminal) {
+        crimes.decrement(criminal.getCrimeCode());
+        locations.decrement(criminal.getLocationCode());
+        complainants.computeIfPresent(criminal.getComplainantName(), (name, count) -> count == 1 ? null : count - 1);
+        complainantGroups.computeIfPresent(groupKey(criminal.getComplainantName()), (key, count) -> count == 1 ? null : count - 1);
+        total--;
+    }
+
+    public int recordCount() {
+        return total;
+    }
+
+    // Distinct non-empty values of the field
+    public int distinct(Field field) {
+        switch (field) {
+            case CRIME: return crimes.distinct;
+            case LOCATION: return locations.distinct;
+            default: return complainantGroups.size() - (complainantGroups.containsKey(null) ? 1 : 0);
+        }
+    }
+
+    // The k largest groups of the field, largest first; k <= 0 returns every group
+    public List<Count> top(Field field, int k) {
+        Groups groups = new Groups();
+        switch (field) {
+            case CRIME: crimes.addAll(groups); break;
+            case LOCATION: locations.addAll(groups); break;
+            default: complainants.forEach(groups::add);
+        }
+        TopK top = new TopK(k);
+        groups.offerAll(top);
+        return top.result();
+    }
+
+    // Merges counts whose values differ only in case (e.g. from several shards), ranked
+    static List<Count> merge(Iterable<Count> counts) {
+        Groups groups = new Groups();
+        counts.forEach(count -> groups.add(count.value, count.count));
+        TopK all = new TopK(0);
+        groups.offerAll(all);
+        return all.result();
+    }
+
+    // Null (not recorded) is a group of its own
+    private static String groupKey(String value) {
+        return value == null ? null : NameIndex.normalize(value);
+    }
+
+    // Spellings summed per groupKey; the group takes the spelling with the largest count
+    private static final class Groups {
+        private final Map<String, Group> byKey = new HashMap<>();
+
+        private static final class Group {
+            String spelling;
+            int spellingCount;
+            int count;
+        }
+
+        void add(String value, int count) {
+            Group group = byKey.computeIfAbsent(groupKey(value), key -> new Group());
+            group.count += count;
+            if (group.spelling == null || count > group.spellingCount
+                    || (count == group.spellingCount && value.compareTo(group.spelling) < 0)) {
+                group.spelling = value;
+                group.spellingCount = count;
+            }
+        }
+
+        void offerAll(TopK top) {
+            byKey.values().forEach(group -> top.offer(group.spelling, group.count));
+        }
+    }
+
+    // Bounded selection: a min-heap of the best k groups seen so far
+    private static final class TopK {
+        private final int k;
+        private final PriorityQueue<Count> heap = new PriorityQueue<>(RANKING.reversed());
+
+        TopK(int k) {
+            this.k = k;
+        }
+
+        void offer(String value, int count) {
+            if (k > 0 && heap.size() == k) {
+                Count worst = heap.peek();
+                if (count < worst.count) return; // Common case: skip without allocating
+                Count candidate = new Count(value, count);
+                if (RANKING.compare(candidate, worst) >= 0) return;
+                heap.poll();
+                heap.add(candidate);
+            } else {
+                heap.add(new Count(value, count));
+            }
+        }
+
+        List<Count> result() {
+            List<Count> sorted = new ArrayList<>(heap);
+            sorted.sort(RANKING);
+            return sorted;
+        }
+    }
+
+    // Counts indexed by dictionary code, plus per group of codes spelling the same value in another case
+    private static final class CodeCounts {
+        private final FieldDictionary dictionary;
+        private int[] counts = new int[16];
+        private int[] groupOf = new int[16]; // By code; 0 = not looked up yet, else group number + 1
+        private int[] groupCounts = new int[16];
+        private final Map<String, Integer> groups = new HashMap<>(); // groupKey -> group number
+        private int distinct = 0; // Non-null groups with a non-zero count
+
+        CodeCounts(FieldDictionary dictionary) {
+            this.dictionary = dictionary;
+        }
+
+        void increment(int code) {
+            if (code >= counts.length) {
+                counts = Arrays.copyOf(counts, Math.max(code + 1, counts.length * 2));
+                groupOf = Arrays.copyOf(groupOf, counts.length);
+            }
+            counts[code]++;
+            if (groupCounts[group(code)]++ == 0 && code != FieldDictionary.NULL_CODE) {
+                distinct++;
+            }
+        }
+
+        void decrement(int code) {
+            if (code < counts.length && counts[code] > 0) {
+                counts[code]--;
+                if (--groupCounts[group(code)] == 0 && code != FieldDictionary.NULL_CODE) {
+                    distinct--;
+                }
+            }
+        }
+
+        private int group(int code) {
+            if (groupOf[code] == 0) {
+                int group = groups.computeIfAbsent(groupKey(dictionary.decode(code)), key -> groups.size());
+                if (group >= groupCounts.length) {
+                    groupCounts = Arrays.copyOf(groupCounts, groupCounts.length * 2);
+                }
+                groupOf[code] = group + 1;
+            }
+            return groupOf[code] - 1;
+        }
+
+        void addAll(Groups target) {
+            for (int code = 0; code < counts.length; code++) {
+                if (counts[code] > 0) {
+                    target.add(dictionary.decode(code), counts[code]);
+                }
+            }
+        }
+    }
+}
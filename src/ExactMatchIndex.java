@@ -0,0 +1,7 @@
+// Case-insensitive exact-match lookup from a field value to the sorted ids of the records holding it.
+public interface ExactMatchIndex {
+
+    int[] lookup(String value);
+
+    boolean contains(String value, int id);
+}
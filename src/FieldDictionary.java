@@ -0,0 +1,58 @@
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Append-only dictionary giving each distinct value of a low-cardinality field (crime, location) a small
+// int code, so a record holds the code instead of its own String copy. Code 0 stands for null.
+// Codes are never reassigned while the process runs, and values are never dropped; snapshots store only
+// the values their records use, under their own codes, so a value no record has is gone after a restart.
+public final class FieldDictionary {
+    public static final int NULL_CODE = 0;
+    public static final int MISSING = -1;
+
+    private final Map<String, Integer> codes = new ConcurrentHashMap<>();
+    private volatile String[] values = new String[16]; // values[code]; slot 0 stays null
+    private volatile int size = 1;
+
+    // Returns the value's code, assigning the next free one if the value is new
+    public int encode(String value) {
+        if (value == null) return NULL_CODE;
+        Integer code = codes.get(value);
+        return code != null ? code : assign(value);
+    }
+
+    private synchronized int assign(String value) {
+        Integer existing = codes.get(value);
+        if (existing != null) return existing;
+        String[] current = values;
+        if (size == current.length) {
+            current = Arrays.copyOf(current, size * 2);
+        }
+        current[size] = value;
+        values = current; // Publishes the entry before the code can be handed out
+        codes.put(value, size);
+        return size++;
+    }
+
+    public String decode(int code) {
+        return values[code];
+    }
+
+    // Code of an already known value, without assigning one; MISSING if the value was never seen
+    public int lookup(String value) {
+        if (value == null) return NULL_CODE;
+        Integer code = codes.get(value);
+        return code == null ? MISSING : code;
+    }
+
+    // Number of codes in use, counting the null code
+    public int size() {
+        return size;
+    }
+
+    // Values by code (index 0 is null), as of now; later codes are never renumbered
+    public String[] snapshot() {
+        int count = size; // Read before values, so every entry below count is visible
+        return Arrays.copyOf(values, count);
+    }
+}
@@ -0,0 +1,31 @@
+import java.util.HashMap;
+import java.util.Map;
+
+// Exact-match (case-insensitive) index from one field's value to the ids holding it.
+public class FieldIndex implements ExactMatchIndex {
+    private final Map<String, PostingList> postings = new HashMap<>();
+
+    public void add(int id, String value) {
+        postings.computeIfAbsent(NameIndex.normalize(value), k -> new PostingList()).add(id);
+    }
+
+    public void remove(int id, String value) {
+        String key = NameIndex.normalize(value);
+        PostingList list = postings.get(key);
+        if (list != null && list.remove(id) && list.size() == 0) {
+            postings.remove(key);
+        }
+    }
+
+    @Override
+    public int[] lookup(String value) {
+        PostingList list = postings.get(NameIndex.normalize(value));
+        return list == null ? new int[0] : list.toArray();
+    }
+
+    @Override
+    public boolean contains(String value, int id) {
+        PostingList list = postings.get(NameIndex.normalize(value));
+        return list != null && list.contains(id);
+    }
+}
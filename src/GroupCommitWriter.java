@@ -0,0 +1,159 @@
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+// Background journal writer that coalesces records from many callers into group commits: one write and
+// one fsync per batch. A batch closes when it holds maxBatchSize records or when its oldest record has
+// waited maxLatencyMillis, whichever comes first; records that arrive during an fsync form the next batch.
+// Each submit() returns a future that completes (true) once its records are durable, or false if the write failed.
+// A failed batch first runs its submissions' undo actions, newest first, so callers that published changes
+// ahead of the write can take them back before drain() returns or anyone hears of the failure.
+class GroupCommitWriter {
+    private final CriminalJournal journal;
+    private final int maxBatchSize;
+    private final long maxLatencyNanos;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition queued = lock.newCondition();
+    private final Condition written = lock.newCondition();
+    private final ArrayDeque<Pending> queue = new ArrayDeque<>();
+    private int queuedRecords = 0;
+    private long submittedCount = 0; // Submissions accepted so far
+    private long writtenCount = 0;   // Submissions whose batch has been written (or has failed)
+
+    GroupCommitWriter(CriminalJournal journal, int maxBatchSize, long maxLatencyMillis) {
+        if (maxBatchSize < 1 || maxLatencyMillis < 0) {
+            throw new IllegalArgumentException("Group commit batch size must be positive and latency non-negative");
+        }
+        this.journal = journal;
+        this.maxBatchSize = maxBatchSize;
+        this.maxLatencyNanos = TimeUnit.MILLISECONDS.toNanos(maxLatencyMillis);
+        Thread writer = new Thread(this::writeLoop, "journal-group-commit");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    private static final class Pending {
+        final List<byte[]> records;
+        final Runnable undo; // Null if there is nothing to take back
+        final long enqueuedAt = System.nanoTime();
+        final CompletableFuture<Boolean> durable = new CompletableFuture<>();
+
+        Pending(List<byte[]> records, Runnable undo) {
+            this.records = records;
+            this.undo = undo;
+        }
+    }
+
+    CompletableFuture<Boolean> submit(List<byte[]> records) {
+        return submit(records, null);
+    }
+
+    // Queues the records behind everything submitted before; callers needing journal order submit under their own lock.
+    // undo runs on the writer thread if the records could not be written.
+    CompletableFuture<Boolean> submit(List<byte[]> records, Runnable undo) {
+        Pending pending = new Pending(records, undo);
+        lock.lock();
+        try {
+            queue.addLast(pending);
+            queuedRecords += records.size();
+            submittedCount++;
+            queued.signal();
+        } finally {
+            lock.unlock();
+        }
+        return pending.durable;
+    }
+
+    // Blocks until everything submitted so far has been written, e.g. before the journal is reset
+    void drain() {
+        lock.lock();
+        try {
+            long target = submittedCount;
+            while (writtenCount < target) {
+                written.awaitUninterruptibly();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void writeLoop() {
+        while (true) {
+            List<Pending> batch = nextBatch();
+            List<byte[]> records = new ArrayList<>();
+            for (Pending pending : batch) {
+                records.addAll(pending.records);
+            }
+            boolean ok;
+            try {
+                ok = journal.appendRecords(records);
+            } catch (RuntimeException e) {
+                System.err.println("Error in journal group commit: " + e);
+                ok = false; // Keep the writer alive; the callers see the failure
+            }
+            if (!ok) {
+                undo(batch);
+            }
+
+            lock.lock();
+            try {
+                writtenCount += batch.size();
+                written.signalAll();
+            } finally {
+                lock.unlock();
+            }
+            for (Pending pending : batch) {
+                pending.durable.complete(ok); // Outside the lock: callbacks may submit again
+            }
+        }
+    }
+
+    // Newest first, so e.g. a failed add followed by a failed delete of the same record ends with no record
+    private static void undo(List<Pending> batch) {
+        for (int i = batch.size() - 1; i >= 0; i--) {
+            Runnable undo = batch.get(i).undo;
+            if (undo == null) continue;
+            try {
+                undo.run();
+            } catch (RuntimeException e) {
+                System.err.println("Error undoing a failed journal write: " + e);
+            }
+        }
+    }
+
+    // Waits for the first record, then up to maxLatency for the batch to fill
+    private List<Pending> nextBatch() {
+        lock.lock();
+        try {
+            while (queue.isEmpty()) {
+                queued.awaitUninterruptibly();
+            }
+            long deadline = queue.peekFirst().enqueuedAt + maxLatencyNanos;
+            long remaining;
+            while (queuedRecords < maxBatchSize && (remaining = deadline - System.nanoTime()) > 0) {
+                try {
+                    queued.awaitNanos(remaining);
+                } catch (InterruptedException e) {
+                    break; // Daemon writer is never interrupted in practice; just write what we have
+                }
+            }
+
+            List<Pending> batch = new ArrayList<>();
+            int records = 0;
+            while (!queue.isEmpty() && (batch.isEmpty() || records + queue.peekFirst().records.size() <= maxBatchSize)) {
+                Pending pending = queue.pollFirst();
+                records += pending.records.size();
+                batch.add(pending);
+            }
+            queuedRecords -= records;
+            return batch;
+        } finally {
+            lock.unlock();
+        }
+    }
+}
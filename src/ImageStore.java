@@ -0,0 +1,183 @@
+import javax.imageio.ImageIO;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.Supplier;
+
+// Content-addressed image storage: each distinct photo is stored once as images/blobs/<sha256>.<ext>
+// and shared by every record that uses it. Reference counts are rebuilt from the records on first use,
+// so a blob is only deleted when the last record pointing at it goes away.
+// Downscaled thumbnails are cached under images/thumbs/ for report embedding.
+public class ImageStore {
+    static final int THUMBNAIL_MAX_SIZE = 300; // Reports display photos at max-width 300px
+
+    private final Path blobsDir;
+    private final Supplier<Iterable<String>> referencedPaths;
+    private Map<String, Integer> refCounts; // Image path -> number of records using it
+
+    public ImageStore(String imagesDirPath, Supplier<Iterable<String>> referencedPaths) {
+        this.blobsDir = Paths.get(imagesDirPath, "blobs");
+        this.referencedPaths = referencedPaths;
+    }
+
+    // --- Storing and releasing ---
+
+    // Stores the image (deduplicated by content) and returns its path, e.g. "images/blobs/ab12....jpg"
+    public String store(InputStream source, String extension) throws IOException {
+        Files.createDirectories(blobsDir);
+        Path tempFile = Files.createTempFile(blobsDir, "incoming", ".tmp");
+        try {
+            MessageDigest digest = sha256();
+            try (InputStream in = new DigestInputStream(source, digest)) {
+                Files.copy(in, tempFile, StandardCopyOption.REPLACE_EXISTING);
+            }
+            Path blob = blobsDir.resolve(toHex(digest.digest()) + extension.toLowerCase(Locale.ROOT));
+            synchronized (this) {
+                if (!Files.exists(blob)) {
+                    Files.move(tempFile, blob, StandardCopyOption.ATOMIC_MOVE);
+                } else {
+                    System.out.println("Image already stored, reusing " + blob);
+                }
+                String imagePath = blob.toString().replace("\\", "/");
+                counts().merge(imagePath, 1, Integer::sum);
+                return imagePath;
+            }
+        } finally {
+            Files.deleteIfExists(tempFile);
+        }
+    }
+
+    public String store(Path source) throws IOException {
+        try (InputStream in = Files.newInputStream(source)) {
+            return store(in, extensionOf(source.getFileName().toString()));
+        }
+    }
+
+    // Drops one reference; the file (and its thumbnail) is deleted when no record uses it any more
+    public synchronized void release(String imagePath) {
+        if (imagePath == null || imagePath.isEmpty()) return;
+        Integer count = counts().get(imagePath);
+        if (count != null && count > 1) {
+            counts().put(imagePath, count - 1);
+            return;
+        }
+        counts().remove(imagePath);
+        try {
+            Path path = Paths.get(imagePath);
+            if (Files.deleteIfExists(path)) {
+                System.out.println("Deleted associated image: " + imagePath);
+            }
+            Files.deleteIfExists(thumbnailPath(path));
+        } catch (IOException e) {
+            System.err.println("Error deleting image file " + imagePath + ": " + e.getMessage());
+            // Log error, but don't necessarily stop the criminal deletion
+        }
+    }
+
+    // Builds the reference counts now if they are not built yet. Call it before a record leaves the store
+    // when its release comes later, so the counts still include that record.
+    public synchronized void loadReferenceCounts() {
+        counts();
+    }
+
+    private Map<String, Integer> counts() {
+        if (refCounts == null) {
+            refCounts = new HashMap<>();
+            for (String path : referencedPaths.get()) {
+                if (path != null && !path.isEmpty()) {
+                    refCounts.merge(path, 1, Integer::sum);
+                }
+            }
+        }
+        return refCounts;
+    }
+
+    // --- Thumbnails ---
+
+    // Returns a cached downscaled copy of the image, creating it on first use.
+    // Returns the original path when the image is already small or cannot be decoded.
+    public static Path thumbnailFor(Path image) {
+        Path thumbnail = thumbnailPath(image);
+        try {
+            if (Files.exists(thumbnail) && Files.getLastModifiedTime(thumbnail).compareTo(Files.getLastModifiedTime(image)) >= 0) {
+                return thumbnail;
+            }
+            BufferedImage original = ImageIO.read(image.toFile());
+            if (original == null || Math.max(original.getWidth(), original.getHeight()) <= THUMBNAIL_MAX_SIZE) {
+                return image; // Unknown format or already thumbnail-sized
+            }
+            double scale = (double) THUMBNAIL_MAX_SIZE / Math.max(original.getWidth(), original.getHeight());
+            int width = Math.max(1, (int) Math.round(original.getWidth() * scale));
+            int height = Math.max(1, (int) Math.round(original.getHeight() * scale));
+
+            BufferedImage scaled = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+            Graphics2D g = scaled.createGraphics();
+            g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            g.setColor(Color.WHITE); // JPEG has no alpha; flatten transparent images onto white
+            g.fillRect(0, 0, width, height);
+            g.drawImage(original, 0, 0, width, height, null);
+            g.dispose();
+
+            Files.createDirectories(thumbnail.getParent());
+            Path tempFile = Files.createTempFile(thumbnail.getParent(), "thumb", ".tmp");
+            try (OutputStream out = Files.newOutputStream(tempFile)) {
+                ImageIO.write(scaled, "jpg", out);
+            }
+            Files.move(tempFile, thumbnail, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            return thumbnail;
+        } catch (IOException | RuntimeException e) {
+            System.err.println("Could not create thumbnail for " + image + ": " + e.getMessage());
+            return image;
+        }
+    }
+
+    // images/blobs/<hash>.png -> images/thumbs/<hash>.jpg (legacy images/criminal_1.png -> images/thumbs/criminal_1.jpg)
+    static Path thumbnailPath(Path image) {
+        Path parent = image.toAbsolutePath().getParent();
+        Path imagesDir = parent.getFileName() != null && parent.getFileName().toString().equals("blobs") ? parent.getParent() : parent;
+        String name = image.getFileName().toString();
+        int dot = name.lastIndexOf('.');
+        String base = dot > 0 ? name.substring(0, dot) : name;
+        return imagesDir.resolve("thumbs").resolve(base + ".jpg");
+    }
+
+    // --- Helpers ---
+
+    static String extensionOf(String fileName) {
+        int dotIndex = fileName.lastIndexOf('.');
+        if (dotIndex > 0 && dotIndex < fileName.length() - 1) {
+            return fileName.substring(dotIndex); // Includes the dot
+        }
+        return "";
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e); // Required on every JVM
+        }
+    }
+
+    private static String toHex(byte[] bytes) {
+        StringBuilder sb = new StringBuilder(bytes.length * 2);
+        for (byte b : bytes) {
+            sb.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,81 @@
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// Bounded LRU cache of recent successful logins, so a session that signs in again (e.g. every HTTP request
+// with Basic auth) costs one HMAC instead of a full PBKDF2 verification. Entries hold an HMAC of the password
+// under a random per-process key - never the password - and are tied to the stored hash they were verified
+// against, so a changed password or a deleted operator never matches. Entries expire after ttlMillis.
+public class LoginCache {
+    private final int capacity;
+    private final long ttlMillis;
+    private final byte[] key = new byte[32];
+    private final Map<Integer, Login> entries;
+
+    private static final class Login {
+        final String storedHash;
+        final byte[] passwordMac;
+        final long expiresAt;
+
+        Login(String storedHash, byte[] passwordMac, long expiresAt) {
+            this.storedHash = storedHash;
+            this.passwordMac = passwordMac;
+            this.expiresAt = expiresAt;
+        }
+    }
+
+    public LoginCache(int capacity, long ttlMillis) {
+        this.capacity = capacity;
+        this.ttlMillis = ttlMillis;
+        new SecureRandom().nextBytes(key);
+        this.entries = new LinkedHashMap<Integer, Login>(16, 0.75f, true) { // Access order: eldest is least recent
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, Login> eldest) {
+                return size() > LoginCache.this.capacity;
+            }
+        };
+    }
+
+    // Whether the operator logged in with this password against this stored hash recently
+    public boolean matches(int operatorId, String storedHash, String password) {
+        if (capacity < 1) return false;
+        Login entry;
+        synchronized (entries) {
+            entry = entries.get(operatorId);
+        }
+        if (entry == null || !entry.storedHash.equals(storedHash) || System.currentTimeMillis() > entry.expiresAt) {
+            return false;
+        }
+        return MessageDigest.isEqual(entry.passwordMac, mac(operatorId, password));
+    }
+
+    public void remember(int operatorId, String storedHash, String password) {
+        if (capacity < 1) return;
+        Login entry = new Login(storedHash, mac(operatorId, password), System.currentTimeMillis() + ttlMillis);
+        synchronized (entries) {
+            entries.put(operatorId, entry);
+        }
+    }
+
+    public void forget(int operatorId) {
+        synchronized (entries) {
+            entries.remove(operatorId);
+        }
+    }
+
+    private byte[] mac(int operatorId, String password) {
+        try {
+            Mac hmac = Mac.getInstance("HmacSHA256");
+            hmac.init(new SecretKeySpec(key, "HmacSHA256"));
+            hmac.update((operatorId + ":").getBytes(StandardCharsets.UTF_8));
+            return hmac.doFinal((password == null ? "" : password).getBytes(StandardCharsets.UTF_8));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("HmacSHA256 is not available", e); // Part of every Java SE JDK
+        }
+    }
+}
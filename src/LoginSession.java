@@ -0,0 +1,76 @@
+import java.io.PrintStream;
+import java.util.InputMismatchException;
+import java.util.Optional;
+import java.util.Scanner;
+
+// One operator session: the banner, the login prompt and then the admin or operator menu.
+// Runs against any Scanner/PrintStream pair, so the console and remote sessions share the same flow.
+public class LoginSession implements Runnable {
+
+    private final CriminalManager criminalManager;
+    private final OperatorManager operatorManager;
+    private final Scanner scanner;
+    private final PrintStream out;
+
+    public LoginSession(CriminalManager criminalManager, OperatorManager operatorManager, Scanner scanner, PrintStream out) {
+        this.criminalManager = criminalManager;
+        this.operatorManager = operatorManager;
+        this.scanner = scanner;
+        this.out = out;
+    }
+
+    @Override
+    public void run() {
+        out.println("************************************************");
+        out.println("           Criminal Management System           ");
+        out.println("************************************************");
+
+        while (true) {
+            out.println("\n------- Login -------");
+            out.println("1. Login");
+            out.println("0. Exit");
+            out.print("Enter choice: ");
+
+            int loginChoice;
+            try {
+                loginChoice = scanner.nextInt();
+                scanner.nextLine();
+
+                if (loginChoice == 0) {
+                    out.println("Exiting system. Goodbye!");
+                    break; // Exit the main loop
+                } else if (loginChoice == 1) {
+                    out.print("Enter Username: ");
+                    String username = scanner.nextLine();
+                    out.print("Enter Password: ");
+                    String password = scanner.nextLine();
+
+                    Optional<Operator> operatorOpt = operatorManager.validateLogin(username, password);
+
+                    if (operatorOpt.isPresent()) {
+                        Operator loggedInOperator = operatorOpt.get();
+                        if (loggedInOperator.getName().equalsIgnoreCase("admin")) {
+                            out.println("\nAdmin Login Successful!");
+                            AdminMenu adminMenu = new AdminMenu(criminalManager, operatorManager, scanner, out);
+                            adminMenu.showMenu();
+                        } else {
+                            out.println("\nOperator Login Successful!");
+                            OperatorMenu operatorMenu = new OperatorMenu(criminalManager, scanner, loggedInOperator.getName(), out);
+                            operatorMenu.showMenu();
+                        }
+                        break;
+                    } else {
+                        out.println("Login failed. Invalid credentials.");
+                    }
+                } else {
+                    out.println("Invalid choice.");
+                }
+
+            } catch (InputMismatchException e) {
+                out.println("Invalid input. Please enter a number.");
+                scanner.nextLine();
+            }
+
+        }
+    }
+}
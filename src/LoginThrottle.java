@@ -0,0 +1,53 @@
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// Slows down password guessing. After FREE_FAILURES failed logins a key (a client address or a user name) is
+// locked out for a delay that doubles with every further failure, up to MAX_LOCKOUT_MILLIS. Callers check the
+// lockout before verifying a password, so locked-out guesses never reach PBKDF2. Failure counts are forgotten
+// after a quiet period of MAX_LOCKOUT_MILLIS, and at most MAX_TRACKED keys are remembered (least recent go first).
+public class LoginThrottle {
+    private static final int FREE_FAILURES = 5;
+    private static final long BASE_LOCKOUT_MILLIS = 1000;
+    private static final long MAX_LOCKOUT_MILLIS = 5 * 60_000;
+    private static final int MAX_TRACKED = 10_000;
+
+    private final Map<String, Failures> failures;
+
+    private static final class Failures {
+        int count;
+        long lastFailure;
+        long lockedUntil;
+    }
+
+    public LoginThrottle() {
+        this.failures = new LinkedHashMap<String, Failures>(16, 0.75f, true) { // Access order: eldest is least recent
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Failures> eldest) {
+                return size() > MAX_TRACKED;
+            }
+        };
+    }
+
+    // Milliseconds until the key may try again, 0 if it is not locked out
+    public synchronized long retryAfterMillis(String key, long now) {
+        Failures entry = failures.get(key);
+        return entry == null ? 0 : Math.max(0, entry.lockedUntil - now);
+    }
+
+    public synchronized void recordFailure(String key, long now) {
+        Failures entry = failures.computeIfAbsent(key, k -> new Failures());
+        if (now - entry.lastFailure > MAX_LOCKOUT_MILLIS) {
+            entry.count = 0;
+        }
+        entry.count++;
+        entry.lastFailure = now;
+        if (entry.count > FREE_FAILURES) {
+            int doublings = Math.min(entry.count - FREE_FAILURES - 1, 20);
+            entry.lockedUntil = now + Math.min(BASE_LOCKOUT_MILLIS << doublings, MAX_LOCKOUT_MILLIS);
+        }
+    }
+
+    public synchronized void recordSuccess(String key) {
+        failures.remove(key);
+    }
+}
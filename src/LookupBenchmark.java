@@ -0,0 +1,116 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.Random;
+
+// Compares id lookups and deletes through RecordTable's IntIndex with the linear scans they replaced
+// (stream().filter(...).findFirst() and removeIf on an ArrayList) at each of the given store sizes.
+// Each operation runs on random ids until OPERATIONS are done or the time budget is spent, and is
+// reported as nanoseconds per operation.
+public class LookupBenchmark {
+    private static final int OPERATIONS = 100_000;
+    private static final long BUDGET_NANOS = 1_000_000_000L; // Per operation and size, so the scans finish at 1M
+
+    private final int[] sizes;
+
+    public LookupBenchmark(int[] sizes) {
+        for (int size : sizes) {
+            if (size < 1) {
+                throw new IllegalArgumentException("Sizes must be positive");
+            }
+        }
+        this.sizes = sizes;
+    }
+
+    public void run() {
+        System.out.println("\n------- Lookup Benchmark -------");
+        System.out.printf("%10s %14s %14s %9s %14s %14s %9s%n",
+                "Records", "Scan find", "Index find", "Speedup", "Scan delete", "Index delete", "Speedup");
+        for (int size : sizes) {
+            List<Criminal> records = new ArrayList<>(size);
+            for (int id = 1; id <= size; id++) {
+                records.add(new Criminal(id, "Suspect " + id, "Theft", null, null, null, null));
+            }
+            double scanFind = scanFind(records, size);
+            double indexFind = indexFind(new RecordTable<>(Criminal::getId, records), size);
+            double scanDelete = scanDelete(new ArrayList<>(records), size);
+            double indexDelete = indexDelete(new RecordTable<>(Criminal::getId, records), size);
+            System.out.printf("%10d %11.0f ns %11.0f ns %8.0fx %11.0f ns %11.0f ns %8.0fx%n", size,
+                    scanFind, indexFind, scanFind / indexFind, scanDelete, indexDelete, scanDelete / indexDelete);
+        }
+    }
+
+    private static double scanFind(List<Criminal> records, int size) {
+        Random random = new Random(1);
+        long found = 0;
+        long start = System.nanoTime();
+        int done = 0;
+        while (done < OPERATIONS && System.nanoTime() - start < BUDGET_NANOS) {
+            int id = 1 + random.nextInt(size);
+            Optional<Criminal> match = records.stream().filter(c -> c.getId() == id).findFirst();
+            found += match.isPresent() ? 1 : 0;
+            done++;
+        }
+        return perOperation(start, done, found);
+    }
+
+    private static double indexFind(RecordTable<Criminal> table, int size) {
+        Random random = new Random(1);
+        long found = 0;
+        long start = System.nanoTime();
+        int done = 0;
+        while (done < OPERATIONS && System.nanoTime() - start < BUDGET_NANOS) {
+            found += table.get(1 + random.nextInt(size)) != null ? 1 : 0;
+            done++;
+        }
+        return perOperation(start, done, found);
+    }
+
+    // Deletes distinct ids in random order, as many as the budget allows
+    private static double scanDelete(List<Criminal> records, int size) {
+        int[] ids = shuffledIds(size);
+        long removed = 0;
+        long start = System.nanoTime();
+        int done = 0;
+        while (done < Math.min(OPERATIONS, size) && System.nanoTime() - start < BUDGET_NANOS) {
+            int id = ids[done];
+            removed += records.removeIf(c -> c.getId() == id) ? 1 : 0;
+            done++;
+        }
+        return perOperation(start, done, removed);
+    }
+
+    private static double indexDelete(RecordTable<Criminal> table, int size) {
+        int[] ids = shuffledIds(size);
+        long removed = 0;
+        long start = System.nanoTime();
+        int done = 0;
+        while (done < Math.min(OPERATIONS, size) && System.nanoTime() - start < BUDGET_NANOS) {
+            removed += table.remove(ids[done]) != null ? 1 : 0;
+            done++;
+        }
+        return perOperation(start, done, removed);
+    }
+
+    private static int[] shuffledIds(int size) {
+        int[] ids = new int[size];
+        for (int i = 0; i < size; i++) ids[i] = i + 1;
+        Random random = new Random(2);
+        for (int i = size - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            int swap = ids[i];
+            ids[i] = ids[j];
+            ids[j] = swap;
+        }
+        return ids;
+    }
+
+    // Every id exists, so a miss means the benchmark itself is broken
+    private static double perOperation(long start, int done, long hits) {
+        long elapsed = System.nanoTime() - start;
+        if (hits != done) {
+            throw new IllegalStateException("Expected " + done + " hits, got " + hits);
+        }
+        return (double) elapsed / done;
+    }
+}
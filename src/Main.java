@@ -1,67 +1,346 @@
-import java.util.Optional;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 import java.util.Scanner;
 
 public class Main {
 
     public static void main(String[] args) {
+        if (args.length > 0) {
+            runCommand(args); // Headless mode, e.g. "java Main import records.csv"
+            return;
+        }
+
         Scanner scanner = new Scanner(System.in);
 
         CriminalManager criminalManager = new CriminalManager();
         OperatorManager operatorManager = new OperatorManager();
 
-        System.out.println("************************************************");
-        System.out.println("           Criminal Management System           ");
-        System.out.println("************************************************");
-
-        while (true) {
-            System.out.println("\n------- Login -------");
-            System.out.println("1. Login");
-            System.out.println("0. Exit");
-            System.out.print("Enter choice: ");
-
-            int loginChoice;
-            try {
-                loginChoice = scanner.nextInt();
-                scanner.nextLine();
-
-                if (loginChoice == 0) {
-                    System.out.println("Exiting system. Goodbye!");
-                    break; // Exit the main loop
-                } else if (loginChoice == 1) {
-                    System.out.print("Enter Username: ");
-                    String username = scanner.nextLine();
-                    System.out.print("Enter Password: ");
-                    String password = scanner.nextLine();
-
-                    Optional<Operator> operatorOpt = operatorManager.validateLogin(username, password);
-
-                    if (operatorOpt.isPresent()) {
-                        Operator loggedInOperator = operatorOpt.get();
-                        if (loggedInOperator.getName().equalsIgnoreCase("admin")) {
-                            System.out.println("\nAdmin Login Successful!");
-                            AdminMenu adminMenu = new AdminMenu(criminalManager, operatorManager, scanner);
-                            adminMenu.showMenu();
-                        } else {
-                            System.out.println("\nOperator Login Successful!");
-                            OperatorMenu operatorMenu = new OperatorMenu(criminalManager, scanner, loggedInOperator.getName());
-                            operatorMenu.showMenu();
-                        }
-                        break;
-                    } else {
-                        System.out.println("Login failed. Invalid credentials.");
-                    }
-                } else {
-                    System.out.println("Invalid choice.");
+        new LoginSession(criminalManager, operatorManager, scanner, System.out).run();
+
+        scanner.close();
+    }
+
+    // --- Headless commands ---
+
+    private static void runCommand(String[] args) {
+        switch (args[0]) {
+            case "import":
+                runImport(args);
+                break;
+            case "reports":
+                runReports(args);
+                break;
+            case "bench":
+                runBenchmark(args);
+                break;
+            case "shard-bench":
+                runShardBenchmark(args);
+                break;
+            case "codec-bench":
+                runCodecBenchmark(args);
+                break;
+            case "lookup-bench":
+                runLookupBenchmark(args);
+                break;
+            case "serve":
+                runServer(args);
+                break;
+            case "loadtest":
+                runLoadTest(args);
+                break;
+            case "sessions":
+                runSessionServer(args);
+                break;
+            case "sequence":
+                printSequence();
+                break;
+            case "delta-export":
+                runDeltaExport(args);
+                break;
+            case "delta-import":
+                runDeltaImport(args);
+                break;
+            case "primary":
+                runPrimary(args);
+                break;
+            case "follower":
+                runFollower(args);
+                break;
+            default:
+                System.out.println("Unknown command: " + args[0]);
+                printUsage();
+        }
+    }
+
+    private static void runImport(String[] args) {
+        if (args.length < 2) {
+            printUsage();
+            return;
+        }
+        Path file = Paths.get(args[1]);
+        int batchSize = args.length > 2 ? Integer.parseInt(args[2]) : 5000;
+        CriminalManager criminalManager = new CriminalManager();
+        try {
+            new BulkImporter(criminalManager, batchSize).importFile(file);
+        } catch (IOException | IllegalArgumentException e) {
+            System.err.println("Import failed: " + e.getMessage());
+        }
+    }
+
+    // reports <fromId> <toId> [threads]  or  reports --crime X --location Y --complainant Z --fir "words" [--threads N]
+    private static void runReports(String[] args) {
+        int threads = Runtime.getRuntime().availableProcessors();
+        List<CriminalQuery> clauses = new ArrayList<>();
+        List<String> positional = new ArrayList<>();
+        for (int i = 1; i < args.length; i++) {
+            String option = args[i];
+            if (option.startsWith("--") && i + 1 < args.length) {
+                String value = args[++i];
+                switch (option) {
+                    case "--crime": clauses.add(CriminalQuery.crimeIs(value)); break;
+                    case "--location": clauses.add(CriminalQuery.locationIs(value)); break;
+                    case "--complainant": clauses.add(CriminalQuery.complainantIs(value)); break;
+                    case "--name": clauses.add(CriminalQuery.nameContains(value)); break;
+                    case "--fir": clauses.add(CriminalQuery.firMentions(value)); break;
+                    case "--threads": threads = Integer.parseInt(value); break;
+                    default:
+                        System.out.println("Unknown option: " + option);
+                        printUsage();
+                        return;
                 }
+            } else {
+                positional.add(option);
+            }
+        }
 
-            } catch (java.util.InputMismatchException e) {
-                System.out.println("Invalid input. Please enter a number.");
-                scanner.nextLine();
+        CriminalManager criminalManager = new CriminalManager();
+        List<Criminal> selected;
+        if (!clauses.isEmpty()) {
+            selected = criminalManager.findCriminals(CriminalQuery.and(clauses));
+        } else if (positional.size() >= 2) {
+            selected = criminalManager.findCriminalsInRange(Integer.parseInt(positional.get(0)), Integer.parseInt(positional.get(1)));
+            if (positional.size() > 2) {
+                threads = Integer.parseInt(positional.get(2));
             }
+        } else {
+            printUsage();
+            return;
+        }
+        new BatchReportRunner(new CriminalReportGenerator(), threads).run(selected);
+    }
+
+    // bench [maxThreads] [secondsPerStep] [--writes]
+    private static void runBenchmark(String[] args) {
+        int maxThreads = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+        int seconds = args.length > 2 ? Integer.parseInt(args[2]) : 3;
+        boolean withWriter = args.length > 3 && args[3].equals("--writes");
+        new ContentionBenchmark(new CriminalManager(), maxThreads, seconds * 1000L, withWriter).run();
+    }
 
+    // shard-bench [maxShards] [writers] [secondsPerStep]
+    private static void runShardBenchmark(String[] args) {
+        int maxShards = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+        int writers = args.length > 2 ? Integer.parseInt(args[2]) : 32;
+        int seconds = args.length > 3 ? Integer.parseInt(args[3]) : 3;
+        new ShardWriteBenchmark(maxShards, writers, seconds * 1000L).run();
+    }
+
+    // codec-bench [records] [rounds]
+    private static void runCodecBenchmark(String[] args) {
+        int records = args.length > 1 ? Integer.parseInt(args[1]) : 100_000;
+        int rounds = args.length > 2 ? Integer.parseInt(args[2]) : 5;
+        try {
+            new CodecBenchmark(records, rounds).run();
+        } catch (IOException e) {
+            System.err.println("Codec benchmark failed: " + e.getMessage());
         }
+    }
 
-        scanner.close();
+    // lookup-bench [sizes...]
+    private static void runLookupBenchmark(String[] args) {
+        int[] sizes = args.length > 1
+                ? Arrays.stream(args, 1, args.length).mapToInt(Integer::parseInt).toArray()
+                : new int[]{1_000, 100_000, 1_000_000};
+        new LookupBenchmark(sizes).run();
+    }
+
+    // serve [port] [bindAddress]
+    private static void runServer(String[] args) {
+        int port = args.length > 1 ? Integer.parseInt(args[1]) : 8080;
+        String bindAddress = args.length > 2 ? args[2] : CriminalApiServer.DEFAULT_BIND_ADDRESS;
+        startApiServer(new CriminalManager(), bindAddress, port);
+    }
+
+    // sessions [port] [idleMinutes] [bindAddress]
+    private static void runSessionServer(String[] args) {
+        int port = args.length > 1 ? Integer.parseInt(args[1]) : 2323;
+        int idleMinutes = args.length > 2 ? Integer.parseInt(args[2]) : 30;
+        String bindAddress = args.length > 3 ? args[3] : SessionServer.DEFAULT_BIND_ADDRESS;
+        SessionServer server = new SessionServer(new CriminalManager(), new OperatorManager(), bindAddress, port,
+                idleMinutes * 60_000);
+        try {
+            server.start();
+            Runtime.getRuntime().addShutdownHook(new Thread(server::stop));
+        } catch (IOException e) {
+            System.err.println("Could not start the session server on port " + port + ": " + e.getMessage());
+        }
+    }
+
+    // loadtest <baseUrl> [clients] [seconds] [user:password] [maxId]
+    private static void runLoadTest(String[] args) {
+        if (args.length < 2) {
+            printUsage();
+            return;
+        }
+        int clients = args.length > 2 ? Integer.parseInt(args[2]) : 16;
+        int seconds = args.length > 3 ? Integer.parseInt(args[3]) : 10;
+        String credentials = args.length > 4 ? args[4] : "admin:admin";
+        int maxId = args.length > 5 ? Integer.parseInt(args[5]) : 1000;
+        int colon = credentials.indexOf(':');
+        if (colon < 0) {
+            printUsage();
+            return;
+        }
+        try {
+            new ApiLoadTest(args[1], credentials.substring(0, colon), credentials.substring(colon + 1), clients, seconds * 1000L, maxId).run();
+        } catch (IOException e) {
+            System.err.println("Load test failed: " + e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // Prints storeId:sequence, the cursor to pass to delta-export on the primary
+    private static void printSequence() {
+        CriminalManager criminalManager = new CriminalManager();
+        long sequence = criminalManager.getChangeSequence();
+        System.out.println(Long.toHexString(criminalManager.getStoreId()) + ":" + sequence);
+    }
+
+    // delta-export <file> [storeId:sequence]  (no cursor: a reset delta with every record)
+    private static void runDeltaExport(String[] args) {
+        if (args.length < 2) {
+            printUsage();
+            return;
+        }
+        long storeId = 0;
+        long since = 0;
+        if (args.length > 2) {
+            int colon = args[2].indexOf(':');
+            if (colon < 0) {
+                printUsage();
+                return;
+            }
+            storeId = Long.parseUnsignedLong(args[2].substring(0, colon), 16);
+            since = Long.parseLong(args[2].substring(colon + 1));
+        }
+        CriminalDelta delta = new CriminalManager().exportDelta(storeId, since);
+        try {
+            AtomicFile.write(Paths.get(args[1]), out -> RecordCodec.writeDelta(out, delta));
+            System.out.println("Exported " + delta + " to " + args[1]);
+        } catch (IOException e) {
+            System.err.println("Delta export failed: " + e.getMessage());
+        }
+    }
+
+    // delta-import <file>
+    private static void runDeltaImport(String[] args) {
+        if (args.length < 2) {
+            printUsage();
+            return;
+        }
+        try {
+            CriminalDelta delta = RecordCodec.readDelta(Files.readAllBytes(Paths.get(args[1])), args[1]);
+            if (new CriminalManager().applyDelta(delta)) {
+                System.out.println("Applied " + delta);
+            } else {
+                System.err.println("Delta import failed: " + delta + " was not fully applied.");
+            }
+        } catch (IOException | IllegalStateException e) {
+            System.err.println("Delta import failed: " + e.getMessage());
+        }
     }
-}
 
+    // primary [replicationPort] [apiPort] [bindAddress], with -Dreplication.secret; the API binds to the same address
+    private static void runPrimary(String[] args) {
+        int port = args.length > 1 ? Integer.parseInt(args[1]) : 7070;
+        String secret = System.getProperty(ReplicationServer.SECRET_PROPERTY);
+        if (secret == null || secret.isEmpty()) {
+            System.err.println("Set the followers' shared secret with -D" + ReplicationServer.SECRET_PROPERTY + "=...");
+            return;
+        }
+        String bindAddress = args.length > 3 ? args[3] : ReplicationServer.DEFAULT_BIND_ADDRESS;
+        CriminalManager criminalManager = new CriminalManager();
+        ReplicationServer server = new ReplicationServer(criminalManager, bindAddress, port, secret);
+        try {
+            server.start();
+            Runtime.getRuntime().addShutdownHook(new Thread(server::stop));
+        } catch (IOException e) {
+            System.err.println("Could not start replication on port " + port + ": " + e.getMessage());
+            return;
+        }
+        if (args.length > 2) {
+            startApiServer(criminalManager, bindAddress, Integer.parseInt(args[2]));
+        }
+    }
+
+    // follower <host:port> [apiPort] [apiBindAddress], with -Dreplication.secret
+    private static void runFollower(String[] args) {
+        int colon = args.length > 1 ? args[1].lastIndexOf(':') : -1;
+        if (colon < 0) {
+            printUsage();
+            return;
+        }
+        String secret = System.getProperty(ReplicationServer.SECRET_PROPERTY);
+        if (secret == null || secret.isEmpty()) {
+            System.err.println("Set the primary's shared secret with -D" + ReplicationServer.SECRET_PROPERTY + "=...");
+            return;
+        }
+        CriminalManager criminalManager = new CriminalManager();
+        ReplicationFollower follower = new ReplicationFollower(criminalManager,
+                args[1].substring(0, colon), Integer.parseInt(args[1].substring(colon + 1)), secret);
+        follower.start();
+        Runtime.getRuntime().addShutdownHook(new Thread(follower::stop));
+        if (args.length > 2) {
+            String bindAddress = args.length > 3 ? args[3] : CriminalApiServer.DEFAULT_BIND_ADDRESS;
+            startApiServer(criminalManager, bindAddress, Integer.parseInt(args[2]));
+        }
+    }
+
+    private static void startApiServer(CriminalManager criminalManager, String bindAddress, int port) {
+        try {
+            CriminalApiServer server = new CriminalApiServer(criminalManager, new OperatorManager(),
+                    new CriminalReportGenerator(), bindAddress, port);
+            server.start();
+            Runtime.getRuntime().addShutdownHook(new Thread(server::stop));
+        } catch (IOException e) {
+            System.err.println("Could not start the API server on port " + port + ": " + e.getMessage());
+        }
+    }
+
+    private static void printUsage() {
+        System.out.println("Usage:");
+        System.out.println("  java Main                                  Interactive login and menus");
+        System.out.println("  java Main import <file.csv|file.jsonl> [batchSize]");
+        System.out.println("  java Main reports <fromId> <toId> [threads]");
+        System.out.println("  java Main reports [--crime X] [--location X] [--complainant X] [--name X] [--fir \"words\"] [--threads N]");
+        System.out.println("  java Main bench [maxThreads] [secondsPerStep] [--writes]");
+        System.out.println("  java Main shard-bench [maxShards] [writers] [secondsPerStep]   Sharded write scaling (other commands use one store)");
+        System.out.println("  java Main codec-bench [records] [rounds]");
+        System.out.println("  java Main lookup-bench [sizes...]          Id index vs linear scan (default 1K 100K 1M)");
+        System.out.println("  java Main serve [port] [bindAddress]   HTTP API (default 127.0.0.1:8080)");
+        System.out.println("  java Main sessions [port] [idleMinutes] [bindAddress]   Menus over TCP (default 127.0.0.1:2323)");
+        System.out.println("  java Main loadtest <http://host:port> [clients] [seconds] [user:password] [maxId]");
+        System.out.println("  java Main sequence                         Print storeId:sequence of the local data");
+        System.out.println("  java Main delta-export <file> [storeId:sequence]");
+        System.out.println("  java Main delta-import <file>              Apply a delta to a read-only replica");
+        System.out.println("  java Main primary [replicationPort] [apiPort] [bindAddress]   Stream changes to followers (default 127.0.0.1:7070)");
+        System.out.println("  java Main follower <host:port> [apiPort] [apiBindAddress]   Read-only replica of a primary");
+        System.out.println("      Both need -D" + ReplicationServer.SECRET_PROPERTY + "=<shared secret>");
+    }
+}
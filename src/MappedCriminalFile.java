@@ -0,0 +1,144 @@
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+// Read-only memory mapping of a RecordCodec criminal snapshot.
+// Opening verifies the block checksums; loading then only walks the record headers to pick up each id, its
+// offset and its crime and location codes. The string fields stay in the mapping and are decoded by Criminal
+// the first time they are read. On Windows the file is read into the heap instead: a mapped file cannot be
+// replaced there until the garbage collector unmaps it, which would make the next snapshot's rename fail.
+public class MappedCriminalFile {
+    private static final boolean MAP_FILES = !System.getProperty("os.name", "").startsWith("Windows");
+
+    private final Path path;
+    private final ByteBuffer buffer;
+    private volatile int version;
+
+    private MappedCriminalFile(Path path, ByteBuffer buffer) throws IOException {
+        this.path = path;
+        this.buffer = buffer;
+        RecordCodec.verifyChecksums(buffer, path.toString());
+    }
+
+    public static MappedCriminalFile open(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IOException("Snapshot too large to map: " + channel.size() + " bytes");
+            }
+            if (MAP_FILES) {
+                // The mapping stays valid after the channel is closed
+                return new MappedCriminalFile(path, channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+            }
+            ByteBuffer contents = ByteBuffer.allocate((int) channel.size());
+            while (contents.hasRemaining()) {
+                if (channel.read(contents) < 0) {
+                    throw new EOFException("Snapshot " + path + " shrank while being read");
+                }
+            }
+            contents.flip();
+            return new MappedCriminalFile(path, contents);
+        }
+    }
+
+    // Record format version of the file (RecordCodec.VERSION_*)
+    public int getVersion() {
+        return version;
+    }
+
+    // Returns one lazy Criminal per record, in file order
+    public List<Criminal> loadCriminals() throws IOException {
+        ByteBuffer view = buffer.duplicate();
+        try {
+            RecordCodec.Header header = RecordCodec.readHeader(view, RecordCodec.KIND_CRIMINAL);
+            version = header.version;
+            boolean coded = version >= RecordCodec.VERSION_DICTIONARY;
+            int[] crimeCodes = coded ? toProcessCodes(RecordCodec.readDictionary(view), Criminal.CRIMES) : null;
+            int[] locationCodes = coded ? toProcessCodes(RecordCodec.readDictionary(view), Criminal.LOCATIONS) : null;
+
+            List<Criminal> criminals = new ArrayList<>(header.count);
+            for (int i = 0; i < header.count; i++) {
+                int recordOffset = view.position();
+                int length = RecordCodec.readVarInt(view);
+                int payloadStart = view.position();
+                int id = RecordCodec.readVarInt(view);
+                RecordCodec.skipString(view); // name
+                int crime = coded ? processCode(crimeCodes, RecordCodec.readVarInt(view))
+                        : Criminal.CRIMES.encode(RecordCodec.readString(view));
+                int location = coded ? processCode(locationCodes, RecordCodec.readVarInt(view))
+                        : Criminal.LOCATIONS.encode(RecordCodec.readString(view));
+                criminals.add(new Criminal(id, crime, location, this, recordOffset));
+                view.position(payloadStart + length);
+            }
+            return criminals;
+        } catch (BufferUnderflowException | IllegalArgumentException e) {
+            throw new EOFException("Truncated snapshot " + path);
+        }
+    }
+
+    // Maps each file code to the code of the same value in this process's dictionary
+    private static int[] toProcessCodes(String[] fileValues, FieldDictionary dictionary) {
+        int[] codes = new int[fileValues.length];
+        for (int code = 1; code < fileValues.length; code++) {
+            codes[code] = dictionary.encode(fileValues[code]);
+        }
+        return codes;
+    }
+
+    private int processCode(int[] codes, int fileCode) throws IOException {
+        if (fileCode >= codes.length) {
+            throw new IOException("Corrupt snapshot " + path + ": dictionary code " + fileCode + " out of range");
+        }
+        return codes[fileCode];
+    }
+
+    // Decodes a single string field (Criminal.FIELD_*) of the record at recordOffset
+    String readField(int recordOffset, int field) {
+        try {
+            ByteBuffer view = buffer.duplicate();
+            view.position(recordOffset);
+            RecordCodec.readVarInt(view); // record length
+            RecordCodec.readVarInt(view); // id
+            for (int i = 0; i < field; i++) {
+                if (version >= RecordCodec.VERSION_DICTIONARY && (i == Criminal.FIELD_CRIME || i == Criminal.FIELD_LOCATION)) {
+                    RecordCodec.readVarInt(view); // Dictionary code
+                } else {
+                    RecordCodec.skipString(view);
+                }
+            }
+            return RecordCodec.readString(view);
+        } catch (IOException | RuntimeException e) {
+            throw new IllegalStateException("Corrupt record at offset " + recordOffset + " in " + path, e);
+        }
+    }
+
+    // Copies the encoded payload of the record at recordOffset without decoding its strings, writing the given
+    // crime and location codes in place of the file's; false (nothing written) when the file has no codes
+    boolean copyPayload(int recordOffset, int crimeCode, int locationCode, OutputStream out) throws IOException {
+        if (version < RecordCodec.VERSION_DICTIONARY) return false;
+        ByteBuffer view = buffer.duplicate();
+        view.position(recordOffset);
+        int length = RecordCodec.readVarInt(view);
+        int payloadStart = view.position();
+        RecordCodec.readVarInt(view); // id
+        RecordCodec.skipString(view); // name
+        int codesStart = view.position();
+        RecordCodec.readVarInt(view); // File crime code
+        RecordCodec.readVarInt(view); // File location code
+        int codesEnd = view.position();
+        byte[] payload = new byte[length];
+        view.position(payloadStart);
+        view.get(payload);
+        out.write(payload, 0, codesStart - payloadStart);
+        RecordCodec.writeVarInt(out, crimeCode);
+        RecordCodec.writeVarInt(out, locationCode);
+        out.write(payload, codesEnd - payloadStart, payload.length - (codesEnd - payloadStart));
+        return true;
+    }
+}
@@ -0,0 +1,57 @@
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+// Inverted trigram index over lower-cased names.
+// A substring query is answered by intersecting the posting lists of its trigrams;
+// callers then verify only the returned candidate ids against the actual names.
+public class NameIndex {
+    private final Map<Long, PostingList> postings = new HashMap<>();
+
+    public static String normalize(String name) {
+        return name == null ? "" : name.toLowerCase(Locale.ROOT);
+    }
+
+    public void add(int id, String name) {
+        String normalized = normalize(name);
+        for (int i = 0; i + 3 <= normalized.length(); i++) {
+            postings.computeIfAbsent(trigram(normalized, i), k -> new PostingList()).add(id);
+        }
+    }
+
+    public void remove(int id, String name) {
+        String normalized = normalize(name);
+        for (int i = 0; i + 3 <= normalized.length(); i++) {
+            long key = trigram(normalized, i);
+            PostingList list = postings.get(key);
+            if (list != null && list.remove(id) && list.size() == 0) {
+                postings.remove(key);
+            }
+        }
+    }
+
+    // True if the query is long enough to be answered from the index
+    public static boolean isIndexable(String normalizedQuery) {
+        return normalizedQuery.length() >= 3;
+    }
+
+    // Ids whose names contain every trigram of the query, in ascending order.
+    // The query must be normalized and indexable.
+    public int[] candidates(String normalizedQuery) {
+        List<PostingList> lists = new ArrayList<>();
+        for (int i = 0; i + 3 <= normalizedQuery.length(); i++) {
+            PostingList list = postings.get(trigram(normalizedQuery, i));
+            if (list == null) {
+                return new int[0]; // Some trigram never occurs, so nothing can match
+            }
+            lists.add(list);
+        }
+        return PostingList.intersectAll(lists);
+    }
+
+    private static long trigram(String s, int start) {
+        return ((long) s.charAt(start) << 32) | ((long) s.charAt(start + 1) << 16) | s.charAt(start + 2);
+    }
+}
@@ -5,12 +5,12 @@ public class Operator implements Serializable {
 
     private int id;
     private String name;
-    private String password; // !! INSECURE: Store hashed password in real apps !!
+    private String password; // PasswordHasher hash (plaintext in files from before hashing); name kept for legacy files
 
-    public Operator(int id, String name, String password) {
+    public Operator(int id, String name, String passwordHash) {
         this.id = id;
         this.name = name;
-        this.password = password;
+        this.password = passwordHash;
     }
 
     // --- Getters ---
@@ -22,7 +22,7 @@ public class Operator implements Serializable {
         return name;
     }
 
-    public String getPassword() {
+    public String getPasswordHash() {
         return password;
     } // Used for login validation
 
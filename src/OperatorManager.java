@@ -1,22 +1,38 @@
 import java.io.*;
+import java.nio.ByteBuffer;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
 import java.util.Optional;
 
+// Shared by every session and the HTTP service, so each public operation synchronizes on the manager -
+// except for password hashing, which is deliberately slow and runs outside the lock.
+// Passwords are stored as salted PBKDF2 hashes (cost set with -Doperators.passwordIterations); recent
+// successful logins are remembered in a LoginCache (-Doperators.loginCacheSize, -Doperators.loginCacheMinutes)
+// so repeated sign-ins skip the hash.
 public class OperatorManager {
-    private List<Operator> operators;
+    private RecordTable<Operator> operators; // Operators in insertion order, indexed by id
+    private final Map<String, Integer> idsByName = new HashMap<>(); // Lower-cased name -> id
     private final String dataFilePath = "data/operators.dat";
     private int nextId = 1;
+    private final PasswordHasher hasher = new PasswordHasher(
+            Integer.getInteger("operators.passwordIterations", PasswordHasher.DEFAULT_ITERATIONS));
+    private final LoginCache loginCache = new LoginCache(Integer.getInteger("operators.loginCacheSize", 1024),
+            Long.getLong("operators.loginCacheMinutes", 10) * 60_000);
+    private final String unknownUserHash = hasher.hash(""); // Checked for unknown names, so they take as long as known ones
 
     public OperatorManager() {
         ensureDirectoryExists("data"); // Ensure data directory exists
-        operators = loadData();
+        operators = new RecordTable<>(Operator::getId, hashPlaintextPasswords(loadData()));
         if (!operators.isEmpty()) {
             nextId = operators.stream().mapToInt(Operator::getId).max().orElse(0) + 1;
         }
+        operators.forEach(op -> idsByName.putIfAbsent(nameKey(op.getName()), op.getId()));
         // Ensure default admin exists (useful for first run)
         ensureAdminExists();
     }
@@ -34,13 +50,12 @@ public class OperatorManager {
 
     // Add default admin if no operators exist
     private void ensureAdminExists() {
-        // Simple check if the default admin username exists
-        boolean adminExists = operators.stream().anyMatch(op -> op.getName().equalsIgnoreCase("admin"));
-        if (!adminExists) {
+        if (findByName("admin") == null) {
             System.out.println("Default admin 'admin' not found. Adding with default password 'admin'.");
             // Add a default admin - ONLY FOR INITIAL SETUP - Change password immediately!
-            Operator defaultAdmin = new Operator(nextId++, "admin", "admin"); // Example only!
+            Operator defaultAdmin = new Operator(nextId++, "admin", hasher.hash("admin"));
             operators.add(defaultAdmin);
+            idsByName.put(nameKey(defaultAdmin.getName()), defaultAdmin.getId());
             saveData(); // Save immediately
         }
     }
@@ -49,21 +64,25 @@ public class OperatorManager {
     // --- Operator Management ---
 
     public boolean addOperator(String name, String password) {
-        // Basic validation (prevent duplicate names)
-        if (operators.stream().anyMatch(op -> op.getName().equalsIgnoreCase(name))) {
-            System.out.println("Operator with name '" + name + "' already exists.");
-            return false;
+        String passwordHash = hasher.hash(password);
+        synchronized (this) {
+            // Basic validation (prevent duplicate names)
+            if (findByName(name) != null) {
+                System.out.println("Operator with name '" + name + "' already exists.");
+                return false;
+            }
+            Operator newOperator = new Operator(nextId++, name, passwordHash);
+            operators.add(newOperator);
+            idsByName.put(nameKey(name), newOperator.getId());
+            return saveData();
         }
-        Operator newOperator = new Operator(nextId++, name, password); // !! INSECURE PASSWORD !!
-        operators.add(newOperator);
-        return saveData();
     }
 
-    public List<Operator> viewOperators() {
-        return new ArrayList<>(operators); // Return copy
+    public synchronized List<Operator> viewOperators() {
+        return operators.toList(); // Return copy
     }
 
-    public boolean deleteOperator(int id) {
+    public synchronized boolean deleteOperator(int id) {
         // Prevent deleting the last operator or a critical admin account if needed
         Optional<Operator> opOpt = findOperatorById(id);
         if (opOpt.isPresent() && opOpt.get().getName().equalsIgnoreCase("admin")) {
@@ -75,48 +94,172 @@ public class OperatorManager {
             return false;
         }
 
-        boolean removed = operators.removeIf(op -> op.getId() == id);
-        if (removed) {
+        Operator removed = operators.remove(id);
+        if (removed != null) {
+            loginCache.forget(id);
+            unindexName(removed);
             return saveData();
         }
         return false;
     }
 
-    public Optional<Operator> findOperatorById(int id) {
-        return operators.stream().filter(op -> op.getId() ==id).findFirst();
+    public synchronized Optional<Operator> findOperatorById(int id) {
+        return Optional.ofNullable(operators.get(id));
     }
 
     // --- Login Validation ---
 
+    // Only the name lookup holds the lock; concurrent sign-ins hash in parallel
     public Optional<Operator> validateLogin(String name, String password) {
-        return operators.stream()
-                .filter(op -> op.getName().equalsIgnoreCase(name) && op.getPassword().equals(password)) // !! INSECURE !!
-                .findFirst();
+        Operator operator;
+        synchronized (this) {
+            operator = findByName(name);
+        }
+        if (operator == null) {
+            hasher.verify(password, unknownUserHash);
+            return Optional.empty();
+        }
+        String storedHash = operator.getPasswordHash();
+        if (loginCache.matches(operator.getId(), storedHash, password)) {
+            return Optional.of(operator);
+        }
+        if (!hasher.verify(password, storedHash)) {
+            return Optional.empty();
+        }
+        if (hasher.needsRehash(storedHash)) {
+            operator = rehash(operator, password);
+        }
+        synchronized (this) {
+            if (operators.get(operator.getId()) != operator) {
+                return Optional.empty(); // Deleted meanwhile
+            }
+        }
+        loginCache.remember(operator.getId(), operator.getPasswordHash(), password);
+        return Optional.of(operator);
     }
 
-    // --- Data Persistence (Serialization) ---
+    // Brings a hash made with another iteration count up to the current cost
+    private Operator rehash(Operator operator, String password) {
+        Operator rehashed = new Operator(operator.getId(), operator.getName(), hasher.hash(password));
+        synchronized (this) {
+            if (operators.get(operator.getId()) != operator) {
+                return operator; // Deleted or replaced meanwhile
+            }
+            operators.add(rehashed); // Replaces the record with the same id
+            if (!saveData()) {
+                operators.add(operator);
+                return operator;
+            }
+        }
+        return rehashed;
+    }
+
+    // --- Name index ---
+
+    private static String nameKey(String name) {
+        return name == null ? "" : name.toLowerCase(Locale.ROOT);
+    }
+
+    // Case-insensitive; callers hold the lock
+    private Operator findByName(String name) {
+        Integer id = idsByName.get(nameKey(name));
+        return id == null ? null : operators.get(id);
+    }
+
+    // Files from before the index may hold names differing only in case; the next one takes over the name
+    private void unindexName(Operator removed) {
+        String key = nameKey(removed.getName());
+        if (idsByName.remove(key, removed.getId())) {
+            operators.stream().filter(op -> nameKey(op.getName()).equals(key)).findFirst()
+                    .ifPresent(op -> idsByName.put(key, op.getId()));
+        }
+    }
+
+    // Operator files from before hashing hold plaintext passwords: hash them and rewrite the file once
+    private List<Operator> hashPlaintextPasswords(List<Operator> loaded) {
+        List<Operator> hashed = new ArrayList<>(loaded.size());
+        int converted = 0;
+        for (Operator op : loaded) {
+            if (PasswordHasher.isHash(op.getPasswordHash())) {
+                hashed.add(op);
+            } else {
+                hashed.add(new Operator(op.getId(), op.getName(), hasher.hash(op.getPasswordHash())));
+                converted++;
+            }
+        }
+        if (converted > 0 && writeData(hashed)) {
+            System.out.println("Hashed " + converted + " plaintext operator passwords in " + dataFilePath);
+        }
+        return hashed;
+    }
+
+    // --- Data Persistence (RecordCodec) ---
 
-    @SuppressWarnings("unchecked")
     private List<Operator> loadData() {
-        try (ObjectInputStream ois = new ObjectInputStream(new FileInputStream(dataFilePath))) {
+        File dataFile = new File(dataFilePath);
+        if (!dataFile.exists()) {
+            System.out.println("Data file (" + dataFilePath + ") not found. Starting with empty operator list.");
+            return new ArrayList<>();
+        }
+        if (dataFile.length() == 0) {
+            System.out.println("Data file (" + dataFilePath + ") is empty. Starting with empty operator list.");
+            return new ArrayList<>();
+        }
+        if (RecordCodec.isLegacySerializedFile(dataFile)) {
+            return migrateLegacyData();
+        }
+        try {
+            byte[] bytes = Files.readAllBytes(dataFile.toPath());
+            boolean checksummed = RecordCodec.verifyChecksums(ByteBuffer.wrap(bytes), dataFilePath);
+            List<Operator> loaded = RecordCodec.readOperators(new ByteArrayInputStream(bytes));
+            System.out.println("Operator data loaded successfully from " + dataFilePath);
+            if (!checksummed && writeData(loaded)) {
+                System.out.println("Added block checksums to " + dataFilePath);
+            }
+            return loaded;
+        } catch (IOException e) {
+            throw unreadableData(e);
+        }
+    }
+
+    // Starting empty would recreate the default admin and overwrite every other account
+    private IllegalStateException unreadableData(Exception cause) {
+        System.err.println("Error loading operator data from " + dataFilePath + ": " + cause.getMessage());
+        return new IllegalStateException("Cannot load " + dataFilePath + " (" + cause.getMessage()
+                + "). Restore it from a backup, or move it aside to start with only the default admin.", cause);
+    }
+
+    // Reads a .dat file written by the old ObjectOutputStream format and rewrites it with RecordCodec
+    private List<Operator> migrateLegacyData() {
+        List<Operator> legacy = loadLegacyData();
+        if (!legacy.isEmpty() && writeData(legacy)) {
+            System.out.println("Migrated " + legacy.size() + " operator records in " + dataFilePath + " to the binary record format.");
+        }
+        return legacy;
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<Operator> loadLegacyData() {
+        try (ObjectInputStream ois = new ObjectInputStream(new BufferedInputStream(new FileInputStream(dataFilePath)))) {
             Object obj = ois.readObject();
             if (obj instanceof List) {
-                System.out.println("Operator data loaded successfully from " + dataFilePath);
-                return (List<Operator>) obj;
+                System.out.println("Operator data loaded successfully from legacy file " + dataFilePath);
+                return new ArrayList<>((List<Operator>) obj);
             }
-        } catch (FileNotFoundException e) {
-            System.out.println("Data file (" + dataFilePath + ") not found. Starting with empty operator list.");
-        } catch (EOFException e) {
-            System.out.println("Data file (" + dataFilePath + ") is empty. Starting with empty operator list.");
         } catch (IOException | ClassNotFoundException e) {
-            System.err.println("Error loading operator data from " + dataFilePath + ": " + e.getMessage());
+            throw unreadableData(e);
         }
         return new ArrayList<>();
     }
 
     private boolean saveData() {
-        try (ObjectOutputStream oos = new ObjectOutputStream(new FileOutputStream(dataFilePath))) {
-            oos.writeObject(operators);
+        return writeData(operators.toList());
+    }
+
+    // Crash-safe: synced temp file, atomic rename
+    private boolean writeData(List<Operator> records) {
+        try {
+            AtomicFile.write(Paths.get(dataFilePath), out -> RecordCodec.writeOperators(out, records));
             System.out.println("Operator data saved successfully to " + dataFilePath);
             return true;
         } catch (IOException e) {
@@ -125,4 +268,3 @@ public class OperatorManager {
         }
     }
 }
-
@@ -0,0 +1,37 @@
+import java.util.List;
+
+// One page of results plus enough context for "page X of Y" navigation.
+public class Page<T> {
+    private final List<T> items;
+    private final int pageNumber; // 1-based
+    private final int pageSize;
+    private final int totalCount;
+
+    public Page(List<T> items, int pageNumber, int pageSize, int totalCount) {
+        this.items = items;
+        this.pageNumber = pageNumber;
+        this.pageSize = pageSize;
+        this.totalCount = totalCount;
+    }
+
+    public List<T> getItems() { return items; }
+    public int getPageNumber() { return pageNumber; }
+    public int getPageSize() { return pageSize; }
+    public int getTotalCount() { return totalCount; }
+
+    public int getTotalPages() {
+        return totalCount == 0 ? 0 : (totalCount + pageSize - 1) / pageSize;
+    }
+
+    public boolean hasNextPage() {
+        return pageNumber < getTotalPages();
+    }
+
+    public boolean hasPreviousPage() {
+        return pageNumber > 1;
+    }
+
+    public boolean isEmpty() {
+        return items.isEmpty();
+    }
+}
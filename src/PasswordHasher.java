@@ -0,0 +1,72 @@
+import javax.crypto.SecretKeyFactory;
+import javax.crypto.spec.PBEKeySpec;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.Base64;
+
+// Salted PBKDF2-HMAC-SHA256 password hashes, stored as "pbkdf2-sha256$<iterations>$<salt>$<hash>" (Base64).
+// Each hash records its own iteration count, so raising the cost (-Doperators.passwordIterations) still
+// verifies older hashes; needsRehash reports those to upgrade on the next successful login.
+public final class PasswordHasher {
+    static final int DEFAULT_ITERATIONS = 310_000;
+    private static final String PREFIX = "pbkdf2-sha256$";
+    private static final int SALT_BYTES = 16;
+    private static final int HASH_BITS = 256;
+
+    private final int iterations;
+    private final SecureRandom random = new SecureRandom();
+
+    public PasswordHasher(int iterations) {
+        if (iterations < 1) {
+            throw new IllegalArgumentException("Iteration count must be positive");
+        }
+        this.iterations = iterations;
+    }
+
+    public String hash(String password) {
+        byte[] salt = new byte[SALT_BYTES];
+        random.nextBytes(salt);
+        Base64.Encoder base64 = Base64.getEncoder().withoutPadding();
+        return PREFIX + iterations + "$" + base64.encodeToString(salt) + "$"
+                + base64.encodeToString(pbkdf2(password, salt, iterations));
+    }
+
+    // Constant-time comparison; false for anything that is not a hash from this class
+    public boolean verify(String password, String stored) {
+        if (!isHash(stored)) {
+            return false;
+        }
+        String[] parts = stored.substring(PREFIX.length()).split("\\$");
+        try {
+            int storedIterations = Integer.parseInt(parts[0]);
+            byte[] salt = Base64.getDecoder().decode(parts[1]);
+            byte[] expected = Base64.getDecoder().decode(parts[2]);
+            return MessageDigest.isEqual(expected, pbkdf2(password, salt, storedIterations));
+        } catch (RuntimeException e) { // Malformed hash
+            return false;
+        }
+    }
+
+    public boolean needsRehash(String stored) {
+        if (!isHash(stored)) return true;
+        String count = stored.substring(PREFIX.length(), stored.indexOf('$', PREFIX.length()));
+        return !count.equals(Integer.toString(iterations));
+    }
+
+    // Plaintext passwords from before hashing are anything without the prefix
+    public static boolean isHash(String stored) {
+        return stored != null && stored.startsWith(PREFIX) && stored.indexOf('$', PREFIX.length()) > 0;
+    }
+
+    private static byte[] pbkdf2(String password, byte[] salt, int iterations) {
+        PBEKeySpec spec = new PBEKeySpec((password == null ? "" : password).toCharArray(), salt, iterations, HASH_BITS);
+        try {
+            return SecretKeyFactory.getInstance("PBKDF2WithHmacSHA256").generateSecret(spec).getEncoded();
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("PBKDF2WithHmacSHA256 is not available", e); // Part of every Java SE 8+ JDK
+        } finally {
+            spec.clearPassword();
+        }
+    }
+}
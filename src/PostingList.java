@@ -0,0 +1,93 @@
+import java.util.Arrays;
+import java.util.List;
+
+// Sorted, growable array of record ids used by the search indexes.
+// Ids normally arrive in increasing order, so add() is an append in the common case.
+public class PostingList {
+    private int[] ids = new int[4];
+    private int size = 0;
+
+    public void add(int id) {
+        if (size > 0 && ids[size - 1] == id) return; // Repeated term within one record
+        int pos = size == 0 || ids[size - 1] < id ? size : Arrays.binarySearch(ids, 0, size, id);
+        if (pos >= 0 && pos < size) return; // Already present
+        if (pos < 0) pos = -pos - 1;
+        if (size == ids.length) {
+            ids = Arrays.copyOf(ids, size * 2);
+        }
+        System.arraycopy(ids, pos, ids, pos + 1, size - pos);
+        ids[pos] = id;
+        size++;
+    }
+
+    public boolean remove(int id) {
+        int pos = Arrays.binarySearch(ids, 0, size, id);
+        if (pos < 0) return false;
+        System.arraycopy(ids, pos + 1, ids, pos, size - pos - 1);
+        size--;
+        return true;
+    }
+
+    public boolean contains(int id) {
+        return Arrays.binarySearch(ids, 0, size, id) >= 0;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int[] toArray() {
+        return Arrays.copyOf(ids, size);
+    }
+
+    // --- Set operations on sorted id arrays ---
+
+    // Intersection of all lists, probing the larger lists for each id of the smallest
+    public static int[] intersectAll(List<PostingList> lists) {
+        if (lists.isEmpty()) return new int[0];
+        lists.sort((a, b) -> Integer.compare(a.size, b.size));
+        int[] result = lists.get(0).toArray();
+        int resultSize = result.length;
+        for (int l = 1; l < lists.size() && resultSize > 0; l++) {
+            PostingList other = lists.get(l);
+            int kept = 0;
+            for (int i = 0; i < resultSize; i++) {
+                if (other.contains(result[i])) {
+                    result[kept++] = result[i];
+                }
+            }
+            resultSize = kept;
+        }
+        return Arrays.copyOf(result, resultSize);
+    }
+
+    public static int[] intersect(int[] a, int[] b) {
+        int[] result = new int[Math.min(a.length, b.length)];
+        int i = 0, j = 0, n = 0;
+        while (i < a.length && j < b.length) {
+            if (a[i] < b[j]) i++;
+            else if (a[i] > b[j]) j++;
+            else {
+                result[n++] = a[i];
+                i++;
+                j++;
+            }
+        }
+        return Arrays.copyOf(result, n);
+    }
+
+    public static int[] union(int[] a, int[] b) {
+        int[] result = new int[a.length + b.length];
+        int i = 0, j = 0, n = 0;
+        while (i < a.length || j < b.length) {
+            if (j >= b.length || (i < a.length && a[i] < b[j])) result[n++] = a[i++];
+            else if (i >= a.length || b[j] < a[i]) result[n++] = b[j++];
+            else {
+                result[n++] = a[i];
+                i++;
+                j++;
+            }
+        }
+        return Arrays.copyOf(result, n);
+    }
+}
@@ -0,0 +1,578 @@
+import java.io.*;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.ToIntFunction;
+import java.util.zip.CRC32C;
+
+// Compact binary format for Criminal and Operator records.
+//
+// File layout:  "CDMS" | version (1 byte) | kind (1 byte) | record count (varint) | dictionaries | records... | checksums
+// Dictionaries: (version 3, criminal files only) crime then location, each as value count (varint) followed by
+//               the values for codes 1..count as strings; code 0 is null. Only values the file's records use.
+// Record:       payload length (varint) | payload
+// Payload:      id (varint) | string fields, each as (UTF-8 length + 1) varint followed by the bytes (0 = null)
+//               In version 3 criminal files, crime and location are dictionary codes (varint) instead of strings.
+// Checksums:    (version 2+) CRC32C of each CHECKSUM_BLOCK_SIZE block of everything before them (4 bytes each),
+//               then a footer: body length (8) | block size (4) | CRC32C of the checksum table (4) | "CDMK"
+// Version 1 files have no checksums and versions 1-2 spell out every crime and location; they are still read
+// and are rewritten in the current version. Journal records use the plain payload, which needs no dictionary.
+// Delta files (kind 'D', see CriminalDelta) have: store id | from sequence | to sequence (varlongs) | reset flag
+// (1 byte) after the header, then one framed journal record per change; the header count is the record count.
+public final class RecordCodec {
+    static final byte[] MAGIC = {'C', 'D', 'M', 'S'};
+    static final int VERSION = 3;
+    static final int VERSION_UNCHECKED = 1;
+    static final int VERSION_DICTIONARY = 3; // First version with field dictionaries
+    static final int CHECKSUM_BLOCK_SIZE = 64 * 1024;
+    private static final byte[] FOOTER_MAGIC = {'C', 'D', 'M', 'K'};
+    private static final int FOOTER_SIZE = 20;
+    static final byte KIND_CRIMINAL = 'C';
+    static final byte KIND_OPERATOR = 'O';
+    static final byte KIND_DELTA = 'D';
+
+    // First two bytes of a java.io.ObjectOutputStream stream (legacy .dat files)
+    private static final int JAVA_SERIALIZATION_MAGIC = 0xACED;
+
+    private RecordCodec() {
+    }
+
+    static final class Header {
+        final int version;
+        final int count;
+
+        Header(int version, int count) {
+            this.version = version;
+            this.count = count;
+        }
+    }
+
+    // --- Format detection ---
+
+    public static boolean isCodecFile(File file) {
+        return startsWith(file, MAGIC);
+    }
+
+    public static boolean isLegacySerializedFile(File file) {
+        return startsWith(file, new byte[]{(byte) (JAVA_SERIALIZATION_MAGIC >>> 8), (byte) JAVA_SERIALIZATION_MAGIC});
+    }
+
+    private static boolean startsWith(File file, byte[] prefix) {
+        if (!file.isFile() || file.length() < prefix.length) return false;
+        try (InputStream in = new FileInputStream(file)) {
+            byte[] head = new byte[prefix.length];
+            if (in.readNBytes(head, 0, head.length) != head.length) return false;
+            for (int i = 0; i < prefix.length; i++) {
+                if (head[i] != prefix[i]) return false;
+            }
+            return true;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    // --- Criminal lists ---
+
+    public static void writeCriminals(OutputStream target, List<Criminal> criminals) throws IOException {
+        ChecksummedOutputStream out = new ChecksummedOutputStream(target);
+        writeHeader(out, KIND_CRIMINAL, criminals.size());
+        // Snapshots are taken after every record in the list got its codes, and codes are never renumbered.
+        // The process dictionaries keep every value ever seen, so the file gets its own, renumbered codes for
+        // just the values its records use.
+        String[] crimeValues = Criminal.CRIMES.snapshot();
+        String[] locationValues = Criminal.LOCATIONS.snapshot();
+        int[] crimeCodes = fileCodes(criminals, Criminal::getCrimeCode, crimeValues.length);
+        int[] locationCodes = fileCodes(criminals, Criminal::getLocationCode, locationValues.length);
+        writeDictionary(out, fileDictionary(crimeValues, crimeCodes));
+        writeDictionary(out, fileDictionary(locationValues, locationCodes));
+        ByteArrayOutputStream scratch = new ByteArrayOutputStream(256);
+        for (Criminal criminal : criminals) {
+            scratch.reset();
+            int crime = crimeCodes[criminal.getCrimeCode()];
+            int location = locationCodes[criminal.getLocationCode()];
+            if (!criminal.copyEncodedTo(scratch, crime, location)) { // Still-mapped records are copied without decoding
+                encodeCodedCriminal(criminal, crime, location, scratch);
+            }
+            writeRecord(out, scratch);
+        }
+        out.finish();
+    }
+
+    public static List<Criminal> readCriminals(InputStream in) throws IOException {
+        Header header = readHeader(in, KIND_CRIMINAL);
+        List<Criminal> criminals = new ArrayList<>(header.count);
+        if (header.version < VERSION_DICTIONARY) {
+            for (int i = 0; i < header.count; i++) {
+                criminals.add(decodeCriminal(new ByteArrayInputStream(readRecord(in))));
+            }
+            return criminals;
+        }
+        String[] crimes = readDictionary(in);
+        String[] locations = readDictionary(in);
+        for (int i = 0; i < header.count; i++) {
+            InputStream record = new ByteArrayInputStream(readRecord(in));
+            int id = readVarInt(record);
+            String name = readString(record);
+            String crime = dictionaryValue(crimes, readVarInt(record));
+            String location = dictionaryValue(locations, readVarInt(record));
+            criminals.add(new Criminal(id, name, crime, location, readString(record), readString(record), readString(record)));
+        }
+        return criminals;
+    }
+
+    public static void encodeCriminal(Criminal criminal, OutputStream out) throws IOException {
+        writeVarInt(out, criminal.getId());
+        writeString(out, criminal.getName());
+        writeString(out, criminal.getCrimeCommitted());
+        writeString(out, criminal.getLocation());
+        writeString(out, criminal.getComplainantName());
+        writeString(out, criminal.getFirDescription());
+        writeString(out, criminal.getImagePath());
+    }
+
+    public static Criminal decodeCriminal(InputStream in) throws IOException {
+        int id = readVarInt(in);
+        return new Criminal(id, readString(in), readString(in), readString(in),
+                readString(in), readString(in), readString(in));
+    }
+
+    // Same as encodeCriminal, but with this process's crime and location codes in place of the strings
+    public static void encodeCodedCriminal(Criminal criminal, OutputStream out) throws IOException {
+        encodeCodedCriminal(criminal, criminal.getCrimeCode(), criminal.getLocationCode(), out);
+    }
+
+    // With the given crime and location codes, e.g. those of a snapshot's own dictionaries
+    static void encodeCodedCriminal(Criminal criminal, int crimeCode, int locationCode, OutputStream out) throws IOException {
+        writeVarInt(out, criminal.getId());
+        writeString(out, criminal.getName());
+        writeVarInt(out, crimeCode);
+        writeVarInt(out, locationCode);
+        writeString(out, criminal.getComplainantName());
+        writeString(out, criminal.getFirDescription());
+        writeString(out, criminal.getImagePath());
+    }
+
+    // --- Field dictionaries ---
+
+    // Dense file codes, in process code order, for the process codes the records use; 0 (null) stays 0
+    private static int[] fileCodes(List<Criminal> criminals, ToIntFunction<Criminal> processCode, int dictionarySize) {
+        int[] codes = new int[dictionarySize];
+        for (Criminal criminal : criminals) {
+            codes[processCode.applyAsInt(criminal)] = 1; // Mark as used
+        }
+        codes[FieldDictionary.NULL_CODE] = FieldDictionary.NULL_CODE;
+        int next = 1;
+        for (int code = 1; code < codes.length; code++) {
+            codes[code] = codes[code] != 0 ? next++ : FieldDictionary.MISSING;
+        }
+        return codes;
+    }
+
+    private static String[] fileDictionary(String[] processValues, int[] fileCodes) {
+        int count = 1;
+        for (int code = 1; code < fileCodes.length; code++) {
+            if (fileCodes[code] != FieldDictionary.MISSING) count++;
+        }
+        String[] values = new String[count];
+        for (int code = 1; code < fileCodes.length; code++) {
+            if (fileCodes[code] != FieldDictionary.MISSING) values[fileCodes[code]] = processValues[code];
+        }
+        return values;
+    }
+
+    private static void writeDictionary(OutputStream out, String[] values) throws IOException {
+        writeVarInt(out, values.length - 1); // Code 0 (null) is implied
+        for (int code = 1; code < values.length; code++) {
+            writeString(out, values[code]);
+        }
+    }
+
+    private static String[] readDictionary(InputStream in) throws IOException {
+        String[] values = new String[readVarInt(in) + 1];
+        for (int code = 1; code < values.length; code++) {
+            values[code] = readString(in);
+        }
+        return values;
+    }
+
+    static String[] readDictionary(ByteBuffer buffer) throws IOException {
+        String[] values = new String[readVarInt(buffer) + 1];
+        for (int code = 1; code < values.length; code++) {
+            values[code] = readString(buffer);
+        }
+        return values;
+    }
+
+    private static String dictionaryValue(String[] values, int code) throws IOException {
+        if (code >= values.length) {
+            throw new IOException("Dictionary code " + code + " out of range");
+        }
+        return values[code];
+    }
+
+    // --- Operator lists ---
+
+    public static void writeOperators(OutputStream target, List<Operator> operators) throws IOException {
+        ChecksummedOutputStream out = new ChecksummedOutputStream(target);
+        writeHeader(out, KIND_OPERATOR, operators.size());
+        ByteArrayOutputStream scratch = new ByteArrayOutputStream(64);
+        for (Operator operator : operators) {
+            scratch.reset();
+            writeVarInt(scratch, operator.getId());
+            writeString(scratch, operator.getName());
+            writeString(scratch, operator.getPasswordHash());
+            writeRecord(out, scratch);
+        }
+        out.finish();
+    }
+
+    public static List<Operator> readOperators(InputStream in) throws IOException {
+        int count = readHeader(in, KIND_OPERATOR).count;
+        List<Operator> operators = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            InputStream record = new ByteArrayInputStream(readRecord(in));
+            operators.add(new Operator(readVarInt(record), readString(record), readString(record)));
+        }
+        return operators;
+    }
+
+    // --- Deltas ---
+
+    public static void writeDelta(OutputStream target, CriminalDelta delta) throws IOException {
+        ChecksummedOutputStream out = new ChecksummedOutputStream(target);
+        writeHeader(out, KIND_DELTA, delta.getRecords().size());
+        writeVarLong(out, delta.getStoreId());
+        writeVarLong(out, delta.getFromSequence());
+        writeVarLong(out, delta.getToSequence());
+        out.write(delta.isReset() ? 1 : 0);
+        for (byte[] record : delta.getRecords()) {
+            writeVarInt(out, record.length);
+            out.write(record);
+        }
+        out.finish();
+    }
+
+    // Reads a whole delta file, verifying its block checksums first
+    public static CriminalDelta readDelta(byte[] file, String name) throws IOException {
+        if (!verifyChecksums(ByteBuffer.wrap(file), name)) {
+            throw new IOException("Delta file " + name + " has no checksums");
+        }
+        InputStream in = new ByteArrayInputStream(file);
+        int count = readHeader(in, KIND_DELTA).count;
+        long storeId = readVarLong(in);
+        long fromSequence = readVarLong(in);
+        long toSequence = readVarLong(in);
+        boolean reset = readByte(in) != 0;
+        List<byte[]> records = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            records.add(readRecord(in));
+        }
+        try {
+            return new CriminalDelta(storeId, fromSequence, toSequence, reset, records);
+        } catch (IllegalArgumentException e) {
+            throw new IOException("Corrupt delta file " + name + ": " + e.getMessage());
+        }
+    }
+
+    // --- Header and record framing ---
+
+    private static void writeHeader(OutputStream out, byte kind, int count) throws IOException {
+        out.write(MAGIC);
+        out.write(VERSION);
+        out.write(kind);
+        writeVarInt(out, count);
+    }
+
+    private static Header readHeader(InputStream in, byte expectedKind) throws IOException {
+        byte[] magic = in.readNBytes(MAGIC.length);
+        for (int i = 0; i < MAGIC.length; i++) {
+            if (magic.length != MAGIC.length || magic[i] != MAGIC[i]) {
+                throw new IOException("Not a record file (bad magic)");
+            }
+        }
+        int version = readByte(in);
+        if (version < VERSION_UNCHECKED || version > VERSION) {
+            throw new IOException("Unsupported record file version " + version);
+        }
+        int kind = readByte(in);
+        if (kind != expectedKind) {
+            throw new IOException("Unexpected record kind '" + (char) kind + "'");
+        }
+        return new Header(version, readVarInt(in));
+    }
+
+    // Same as readHeader, for a buffer positioned at the start of the file
+    static Header readHeader(ByteBuffer buffer, byte expectedKind) throws IOException {
+        try {
+            for (byte b : MAGIC) {
+                if (buffer.get() != b) {
+                    throw new IOException("Not a record file (bad magic)");
+                }
+            }
+            int version = buffer.get() & 0xFF;
+            if (version < VERSION_UNCHECKED || version > VERSION) {
+                throw new IOException("Unsupported record file version " + version);
+            }
+            int kind = buffer.get();
+            if (kind != expectedKind) {
+                throw new IOException("Unexpected record kind '" + (char) kind + "'");
+            }
+            return new Header(version, readVarInt(buffer));
+        } catch (BufferUnderflowException e) {
+            throw new EOFException("Truncated record file header");
+        }
+    }
+
+    private static void writeRecord(OutputStream out, ByteArrayOutputStream payload) throws IOException {
+        writeVarInt(out, payload.size());
+        payload.writeTo(out);
+    }
+
+    private static byte[] readRecord(InputStream in) throws IOException {
+        int length = readVarInt(in);
+        byte[] payload = in.readNBytes(length);
+        if (payload.length != length) {
+            throw new EOFException("Truncated record");
+        }
+        return payload;
+    }
+
+    // --- Block checksums ---
+
+    // Checks every block checksum of a whole record file. Returns false for a version 1 file, which has none;
+    // throws if the file is truncated or any block is corrupt.
+    static boolean verifyChecksums(ByteBuffer file, String name) throws IOException {
+        ByteBuffer view = file.duplicate().order(ByteOrder.BIG_ENDIAN);
+        if (view.remaining() < MAGIC.length + 1) {
+            throw new EOFException("Truncated record file " + name);
+        }
+        int version = view.get(MAGIC.length) & 0xFF;
+        if (version == VERSION_UNCHECKED) {
+            return false;
+        }
+        int size = view.limit();
+        if (size < FOOTER_SIZE + MAGIC.length) {
+            throw new IOException("Corrupt record file " + name + ": missing checksum footer");
+        }
+        for (int i = 0; i < FOOTER_MAGIC.length; i++) {
+            if (view.get(size - FOOTER_MAGIC.length + i) != FOOTER_MAGIC[i]) {
+                throw new IOException("Corrupt record file " + name + ": missing checksum footer (truncated?)");
+            }
+        }
+        long bodyLength = view.getLong(size - FOOTER_SIZE);
+        int blockSize = view.getInt(size - FOOTER_SIZE + 8);
+        int tableChecksum = view.getInt(size - FOOTER_SIZE + 12);
+        if (blockSize <= 0 || bodyLength < 0) {
+            throw new IOException("Corrupt record file " + name + ": bad checksum footer");
+        }
+        long blocks = (bodyLength + blockSize - 1) / blockSize;
+        if (bodyLength + blocks * 4 + FOOTER_SIZE != size) {
+            throw new IOException("Corrupt record file " + name + ": length does not match its checksum footer");
+        }
+        int tableStart = (int) bodyLength;
+        if (checksum(view, tableStart, (int) blocks * 4) != tableChecksum) {
+            throw new IOException("Corrupt record file " + name + ": checksum table is damaged");
+        }
+        for (int block = 0; block < blocks; block++) {
+            int start = block * blockSize;
+            int length = (int) Math.min(blockSize, bodyLength - start);
+            if (checksum(view, start, length) != view.getInt(tableStart + block * 4)) {
+                throw new IOException("Corrupt record file " + name + ": checksum mismatch in block " + block
+                        + " (bytes " + start + "-" + (start + length - 1) + ")");
+            }
+        }
+        return true;
+    }
+
+    private static int checksum(ByteBuffer buffer, int offset, int length) {
+        CRC32C crc = new CRC32C();
+        ByteBuffer slice = buffer.duplicate();
+        slice.limit(offset + length).position(offset);
+        crc.update(slice);
+        return (int) crc.getValue();
+    }
+
+    // Buffers output in checksum blocks and appends the checksum table and footer on finish()
+    private static final class ChecksummedOutputStream extends OutputStream {
+        private final OutputStream out;
+        private final byte[] block = new byte[CHECKSUM_BLOCK_SIZE];
+        private final ByteArrayOutputStream table = new ByteArrayOutputStream();
+        private final CRC32C crc = new CRC32C();
+        private int blockFill = 0;
+        private long bodyLength = 0;
+
+        ChecksummedOutputStream(OutputStream out) {
+            this.out = out;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            block[blockFill++] = (byte) b;
+            if (blockFill == block.length) {
+                flushBlock();
+            }
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            while (len > 0) {
+                int n = Math.min(len, block.length - blockFill);
+                System.arraycopy(b, off, block, blockFill, n);
+                blockFill += n;
+                off += n;
+                len -= n;
+                if (blockFill == block.length) {
+                    flushBlock();
+                }
+            }
+        }
+
+        private void flushBlock() throws IOException {
+            if (blockFill == 0) return;
+            crc.reset();
+            crc.update(block, 0, blockFill);
+            writeInt(table, (int) crc.getValue());
+            out.write(block, 0, blockFill);
+            bodyLength += blockFill;
+            blockFill = 0;
+        }
+
+        // Writes the last partial block, the checksum table and the footer; does not close the target
+        void finish() throws IOException {
+            flushBlock();
+            byte[] checksums = table.toByteArray();
+            crc.reset();
+            crc.update(checksums, 0, checksums.length);
+            out.write(checksums);
+            ByteBuffer footer = ByteBuffer.allocate(FOOTER_SIZE).order(ByteOrder.BIG_ENDIAN);
+            footer.putLong(bodyLength).putInt(CHECKSUM_BLOCK_SIZE).putInt((int) crc.getValue()).put(FOOTER_MAGIC);
+            out.write(footer.array());
+            out.flush();
+        }
+
+        private static void writeInt(OutputStream out, int value) throws IOException {
+            out.write(value >>> 24);
+            out.write(value >>> 16);
+            out.write(value >>> 8);
+            out.write(value);
+        }
+    }
+
+    // --- Primitives ---
+
+    public static void writeVarInt(OutputStream out, int value) throws IOException {
+        while ((value & ~0x7F) != 0) {
+            out.write((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.write(value);
+    }
+
+    public static int varIntSize(int value) {
+        int size = 1;
+        while ((value & ~0x7F) != 0) {
+            value >>>= 7;
+            size++;
+        }
+        return size;
+    }
+
+    public static int readVarInt(InputStream in) throws IOException {
+        int value = 0;
+        for (int shift = 0; shift < 32; shift += 7) {
+            int b = readByte(in);
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Malformed varint");
+    }
+
+    public static void writeVarLong(OutputStream out, long value) throws IOException {
+        while ((value & ~0x7FL) != 0) {
+            out.write((int) (value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.write((int) value);
+    }
+
+    public static long readVarLong(InputStream in) throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            int b = readByte(in);
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Malformed varlong");
+    }
+
+    public static void writeString(OutputStream out, String value) throws IOException {
+        if (value == null) {
+            writeVarInt(out, 0);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        writeVarInt(out, bytes.length + 1);
+        out.write(bytes);
+    }
+
+    public static String readString(InputStream in) throws IOException {
+        int length = readVarInt(in) - 1;
+        if (length < 0) return null;
+        byte[] bytes = in.readNBytes(length);
+        if (bytes.length != length) {
+            throw new EOFException("Truncated string field");
+        }
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    // --- ByteBuffer variants (used by MappedCriminalFile and ColumnarCriminalStore) ---
+
+    public static int readVarInt(ByteBuffer buffer) throws IOException {
+        int value = 0;
+        for (int shift = 0; shift < 32; shift += 7) {
+            int b = buffer.get() & 0xFF;
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Malformed varint");
+    }
+
+    // Reads a payload written by encodeCodedCriminal in this process
+    public static Criminal decodeCodedCriminal(ByteBuffer buffer) throws IOException {
+        int id = readVarInt(buffer);
+        return new Criminal(id, readString(buffer), readVarInt(buffer), readVarInt(buffer),
+                readString(buffer), readString(buffer), readString(buffer));
+    }
+
+    public static String readString(ByteBuffer buffer) throws IOException {
+        int length = readVarInt(buffer) - 1;
+        if (length < 0) return null;
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    public static void skipString(ByteBuffer buffer) throws IOException {
+        int length = readVarInt(buffer) - 1;
+        if (length > 0) {
+            buffer.position(buffer.position() + length);
+        }
+    }
+
+    private static int readByte(InputStream in) throws IOException {
+        int b = in.read();
+        if (b < 0) {
+            throw new EOFException();
+        }
+        return b;
+    }
+}
@@ -0,0 +1,31 @@
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+// Id-keyed, insertion-ordered record storage behind CriminalManager. RecordTable keeps the records as
+// heap objects; ColumnarCriminalStore keeps them encoded off-heap. Writers must be serialized by the caller.
+public interface RecordStore<T> {
+
+    // Adds a record, replacing any existing record with the same id
+    void add(T record);
+
+    T get(int id);
+
+    boolean contains(int id);
+
+    // Returns the removed record, or null if no record has that id
+    T remove(int id);
+
+    // Removes every record
+    void clear();
+
+    int size();
+
+    boolean isEmpty();
+
+    void forEach(Consumer<? super T> action);
+
+    Stream<T> stream();
+
+    List<T> toList();
+}
@@ -0,0 +1,106 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.function.Consumer;
+import java.util.function.ToIntFunction;
+import java.util.stream.Stream;
+
+// Insertion-ordered list of records with an IntIndex from id to slot.
+// Lookups and deletes by id are O(1): a delete leaves a null tombstone in its slot,
+// and the slots are compacted once tombstones outnumber live records.
+public class RecordTable<T> implements RecordStore<T> {
+    private final ToIntFunction<T> idOf;
+    private ArrayList<T> slots;
+    private IntIndex index;
+    private int tombstones = 0;
+
+    public RecordTable(ToIntFunction<T> idOf, List<T> records) {
+        this.idOf = idOf;
+        this.slots = new ArrayList<>(records.size());
+        this.index = new IntIndex(records.size());
+        for (T record : records) {
+            add(record);
+        }
+    }
+
+    // Adds a record, replacing any existing record with the same id
+    public void add(T record) {
+        int id = idOf.applyAsInt(record);
+        int existing = index.get(id);
+        if (existing != IntIndex.MISSING) {
+            slots.set(existing, null);
+            tombstones++;
+        }
+        index.put(id, slots.size());
+        slots.add(record);
+    }
+
+    public T get(int id) {
+        int slot = index.get(id);
+        return slot == IntIndex.MISSING ? null : slots.get(slot);
+    }
+
+    public boolean contains(int id) {
+        return index.containsKey(id);
+    }
+
+    // Returns the removed record, or null if no record has that id
+    public T remove(int id) {
+        int slot = index.remove(id);
+        if (slot == IntIndex.MISSING) {
+            return null;
+        }
+        T removed = slots.set(slot, null);
+        tombstones++;
+        if (tombstones > 16 && tombstones > index.size()) {
+            compactSlots();
+        }
+        return removed;
+    }
+
+    public void clear() {
+        slots = new ArrayList<>();
+        index = new IntIndex();
+        tombstones = 0;
+    }
+
+    private void compactSlots() {
+        ArrayList<T> live = new ArrayList<>(index.size());
+        IntIndex rebuilt = new IntIndex(index.size());
+        for (T record : slots) {
+            if (record != null) {
+                rebuilt.put(idOf.applyAsInt(record), live.size());
+                live.add(record);
+            }
+        }
+        slots = live;
+        index = rebuilt;
+        tombstones = 0;
+    }
+
+    public int size() {
+        return index.size();
+    }
+
+    public boolean isEmpty() {
+        return index.size() == 0;
+    }
+
+    public void forEach(Consumer<? super T> action) {
+        for (T record : slots) {
+            if (record != null) {
+                action.accept(record);
+            }
+        }
+    }
+
+    public Stream<T> stream() {
+        return slots.stream().filter(Objects::nonNull);
+    }
+
+    public List<T> toList() {
+        List<T> copy = new ArrayList<>(index.size());
+        forEach(copy::add);
+        return copy;
+    }
+}
@@ -0,0 +1,148 @@
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.InvalidKeyException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+
+// Handshake proofs and authenticated framing for one replication connection (ReplicationServer to
+// ReplicationFollower). Each side sends a random challenge and proves it holds the shared secret with an HMAC
+// over both challenges and the follower's cursor, so neither end can be impersonated and no old answer can be
+// replayed; the secret itself never crosses the connection. The frames that follow carry an HMAC of their
+// number, kind and contents under a key derived the same way, and are checked before anything in them is decoded.
+// A frame is a kind byte, an int length, that many bytes and the MAC. Deltas longer than MAX_FRAME_BYTES are
+// sent as PART frames ending with a LAST frame, so a reader never allocates more than MAX_FRAME_BYTES for a
+// frame it has not authenticated; heartbeats are empty frames.
+final class ReplicationChannel {
+    static final int HANDSHAKE = 0x43525032; // "CRP2"
+    static final int CHALLENGE_BYTES = 16;
+    static final int MAC_BYTES = 32;
+    static final int MAX_FRAME_BYTES = 4 * 1024 * 1024;
+    private static final byte HEARTBEAT = 0;
+    private static final byte PART = 1;
+    private static final byte LAST = 2;
+
+    private final Mac frameMac;
+    private long frameNumber = 0; // Frames sent or received so far; each connection only streams one way
+
+    ReplicationChannel(byte[] secret, byte[] primaryChallenge, byte[] followerChallenge, long storeId, long sequence) {
+        byte[] key = proof(secret, "frames", primaryChallenge, followerChallenge, storeId, sequence);
+        frameMac = hmac();
+        try {
+            frameMac.init(new SecretKeySpec(key, "HmacSHA256"));
+        } catch (InvalidKeyException e) {
+            throw new IllegalStateException(e); // Any HMAC key length is valid
+        }
+    }
+
+    static byte[] newChallenge(SecureRandom random) {
+        byte[] challenge = new byte[CHALLENGE_BYTES];
+        random.nextBytes(challenge);
+        return challenge;
+    }
+
+    // What the follower sends to show it holds the secret
+    static byte[] followerProof(byte[] secret, byte[] primaryChallenge, byte[] followerChallenge, long storeId, long sequence) {
+        return proof(secret, "follower", primaryChallenge, followerChallenge, storeId, sequence);
+    }
+
+    // What the primary answers with; it also confirms the cursor the primary received
+    static byte[] primaryProof(byte[] secret, byte[] primaryChallenge, byte[] followerChallenge, long storeId, long sequence) {
+        return proof(secret, "primary", primaryChallenge, followerChallenge, storeId, sequence);
+    }
+
+    // HMAC-SHA256 under the secret of a role label, both challenges and the cursor
+    private static byte[] proof(byte[] secret, String label, byte[] primaryChallenge, byte[] followerChallenge,
+                                long storeId, long sequence) {
+        Mac mac = hmac();
+        try {
+            mac.init(new SecretKeySpec(secret, "HmacSHA256"));
+        } catch (InvalidKeyException e) {
+            throw new IllegalStateException(e);
+        }
+        mac.update(label.getBytes(StandardCharsets.US_ASCII));
+        mac.update(primaryChallenge);
+        mac.update(followerChallenge);
+        return mac.doFinal(ByteBuffer.allocate(16).putLong(storeId).putLong(sequence).array());
+    }
+
+    private static Mac hmac() {
+        try {
+            return Mac.getInstance("HmacSHA256");
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("HmacSHA256 is not available", e); // Part of every Java SE JDK
+        }
+    }
+
+    // --- Sending ---
+
+    void writeHeartbeat(DataOutputStream out) throws IOException {
+        writeFrame(out, HEARTBEAT, new byte[0], 0, 0);
+        out.flush();
+    }
+
+    void writeDelta(DataOutputStream out, byte[] encodedDelta) throws IOException {
+        int offset = 0;
+        while (encodedDelta.length - offset > MAX_FRAME_BYTES) {
+            writeFrame(out, PART, encodedDelta, offset, MAX_FRAME_BYTES);
+            offset += MAX_FRAME_BYTES;
+        }
+        writeFrame(out, LAST, encodedDelta, offset, encodedDelta.length - offset);
+        out.flush();
+    }
+
+    private void writeFrame(DataOutputStream out, byte kind, byte[] data, int offset, int length) throws IOException {
+        out.writeByte(kind);
+        out.writeInt(length);
+        out.write(data, offset, length);
+        out.write(mac(kind, data, offset, length));
+    }
+
+    // --- Receiving ---
+
+    // The next encoded delta, reassembled from its frames, or null for a heartbeat
+    byte[] readDelta(DataInputStream in) throws IOException {
+        ByteArrayOutputStream parts = null;
+        while (true) {
+            byte kind = in.readByte();
+            int length = in.readInt();
+            if (kind < HEARTBEAT || kind > LAST || length < 0 || length > MAX_FRAME_BYTES
+                    || (kind == HEARTBEAT && (length != 0 || parts != null))) {
+                throw new IOException("Bad replication frame (kind " + kind + ", " + length + " bytes)");
+            }
+            byte[] data = new byte[length];
+            in.readFully(data);
+            byte[] received = new byte[MAC_BYTES];
+            in.readFully(received);
+            if (!MessageDigest.isEqual(received, mac(kind, data, 0, length))) {
+                throw new IOException("Replication frame failed authentication");
+            }
+            if (kind == HEARTBEAT) {
+                return null;
+            }
+            if (kind == LAST && parts == null) {
+                return data;
+            }
+            if (parts == null) {
+                parts = new ByteArrayOutputStream(2 * MAX_FRAME_BYTES);
+            }
+            parts.write(data);
+            if (kind == LAST) {
+                return parts.toByteArray();
+            }
+        }
+    }
+
+    // Numbering the frames keeps them from being dropped, reordered or replayed unnoticed
+    private byte[] mac(byte kind, byte[] data, int offset, int length) {
+        frameMac.update(ByteBuffer.allocate(13).putLong(frameNumber++).put(kind).putInt(length).array());
+        frameMac.update(data, offset, length);
+        return frameMac.doFinal();
+    }
+}
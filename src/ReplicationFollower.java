@@ -0,0 +1,144 @@
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+
+// Follower side of replication: keeps a read-only CriminalManager in step with a ReplicationServer.
+// The follower reconnects with its own cursor after any failure, so a restart, a dropped connection or a
+// delta that does not connect is healed by the primary sending the missing changes, or a reset delta when
+// they are no longer retained. Local queries are served from the replica meanwhile. The follower and the
+// primary prove to each other that they hold the shared secret, and every frame is authenticated before it
+// is decoded (see ReplicationChannel).
+public class ReplicationFollower {
+    private static final int CONNECT_TIMEOUT_MILLIS = 5000;
+    private static final int MAX_RETRY_MILLIS = 30_000;
+
+    private final CriminalManager criminalManager;
+    private final String host;
+    private final int port;
+    private final byte[] secret;
+    private final SecureRandom random = new SecureRandom();
+    private volatile boolean running = false;
+    private volatile boolean connected = false;
+    private volatile Socket socket;
+    private Thread thread;
+
+    public ReplicationFollower(CriminalManager criminalManager, String host, int port, String secret) {
+        if (secret == null || secret.isEmpty()) {
+            throw new IllegalArgumentException("Replication needs a shared secret (-D" + ReplicationServer.SECRET_PROPERTY + ")");
+        }
+        this.criminalManager = criminalManager;
+        this.host = host;
+        this.port = port;
+        this.secret = secret.getBytes(StandardCharsets.UTF_8);
+    }
+
+    public void start() {
+        criminalManager.setReadOnly(true);
+        running = true;
+        thread = new Thread(this::followLoop, "replication-follower");
+        thread.start();
+        System.out.println("Following primary " + host + ":" + port + " from store "
+                + Long.toHexString(criminalManager.getStoreId()) + ":" + criminalManager.getChangeSequence());
+    }
+
+    public void stop() {
+        running = false;
+        Socket current = socket;
+        try {
+            if (current != null) current.close(); // Unblocks the read
+        } catch (IOException e) {
+            System.err.println("Error closing replication connection: " + e.getMessage());
+        }
+        if (thread != null) thread.interrupt();
+    }
+
+    public boolean isConnected() {
+        return connected;
+    }
+
+    private void followLoop() {
+        int retryMillis = 1000;
+        while (running) {
+            try (Socket s = new Socket()) {
+                socket = s;
+                s.connect(new InetSocketAddress(host, port), CONNECT_TIMEOUT_MILLIS);
+                s.setSoTimeout(3 * ReplicationServer.HEARTBEAT_MILLIS); // A silent primary is presumed gone
+                s.setTcpNoDelay(true);
+                follow(s);
+            } catch (EOFException e) {
+                System.out.println("Primary " + host + ":" + port + " closed the replication stream.");
+            } catch (IOException e) {
+                if (running) {
+                    System.err.println("Replication from " + host + ":" + port + " interrupted: " + e.getMessage());
+                }
+            } catch (IllegalStateException e) {
+                System.err.println("Replication from " + host + ":" + port + " out of step: " + e.getMessage());
+            } finally {
+                if (connected) {
+                    retryMillis = 1000; // Was streaming: reconnect promptly
+                }
+                connected = false;
+                socket = null;
+            }
+            if (!running) {
+                break;
+            }
+            try {
+                Thread.sleep(retryMillis);
+            } catch (InterruptedException e) {
+                break;
+            }
+            retryMillis = Math.min(retryMillis * 2, MAX_RETRY_MILLIS);
+        }
+    }
+
+    // Applies deltas until the connection fails; a delta that cannot be applied ends the connection, and the
+    // next handshake sends the cursor the replica really has
+    private void follow(Socket s) throws IOException {
+        DataInputStream in = new DataInputStream(new BufferedInputStream(s.getInputStream()));
+        if (in.readInt() != ReplicationChannel.HANDSHAKE) {
+            throw new IOException("Not a replication primary");
+        }
+        byte[] primaryChallenge = new byte[ReplicationChannel.CHALLENGE_BYTES];
+        in.readFully(primaryChallenge);
+        byte[] challenge = ReplicationChannel.newChallenge(random);
+        long storeId = criminalManager.getStoreId();
+        long sequence = criminalManager.getChangeSequence();
+        DataOutputStream out = new DataOutputStream(s.getOutputStream());
+        out.writeInt(ReplicationChannel.HANDSHAKE);
+        out.writeLong(storeId);
+        out.writeLong(sequence);
+        out.write(challenge);
+        out.write(ReplicationChannel.followerProof(secret, primaryChallenge, challenge, storeId, sequence));
+        out.flush();
+        byte[] answer = new byte[ReplicationChannel.MAC_BYTES];
+        in.readFully(answer); // A primary that rejects our proof closes instead
+        if (!MessageDigest.isEqual(answer,
+                ReplicationChannel.primaryProof(secret, primaryChallenge, challenge, storeId, sequence))) {
+            throw new IOException("Primary did not prove it holds the shared secret");
+        }
+        ReplicationChannel channel = new ReplicationChannel(secret, primaryChallenge, challenge, storeId, sequence);
+        String source = "replication stream from " + host + ":" + port;
+        while (running) {
+            byte[] encoded = channel.readDelta(in); // Authenticated before it is decoded
+            connected = true;
+            if (encoded == null) {
+                continue; // Heartbeat
+            }
+            CriminalDelta delta = RecordCodec.readDelta(encoded, source);
+            if (!criminalManager.applyDelta(delta)) {
+                throw new IOException("Could not apply " + delta);
+            }
+            if (delta.isReset()) {
+                System.out.println("Replica reset from " + host + ":" + port + ": " + delta);
+            }
+        }
+    }
+}
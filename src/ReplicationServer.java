@@ -0,0 +1,247 @@
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Primary side of replication: streams the store's changes to ReplicationFollower nodes over TCP.
+// A follower opens with its cursor (store id and change sequence); the primary answers with a CriminalDelta
+// from that cursor - a reset carrying every record if the follower is new, follows another store, or has
+// fallen behind the retained journal - and then sends each new batch of changes as it is journaled. Batches
+// reach every stream through one in-memory feed and are encoded once, whatever the number of followers.
+// Each delta is a RecordCodec delta file sent in ReplicationChannel frames, with heartbeats while idle.
+// Both ends prove they hold the shared secret (-Dreplication.secret) before anything is sent: the primary
+// opens with HANDSHAKE and a random challenge, the follower answers with its cursor, its own challenge and its
+// proof, and the primary replies with its proof; every frame is then authenticated. The records cross the
+// connection unencrypted, so the primary listens on loopback unless given another bind address; use an SSH or
+// TLS tunnel across untrusted networks.
+public class ReplicationServer {
+    static final int HEARTBEAT_MILLIS = 5000;
+    public static final String DEFAULT_BIND_ADDRESS = "127.0.0.1";
+    public static final String SECRET_PROPERTY = "replication.secret";
+    private static final int FEED_BATCHES = 1024; // Journaled batches held for streams that are behind
+
+    private final CriminalManager criminalManager;
+    private final String bindAddress;
+    private final int port;
+    private final byte[] secret;
+    private final SecureRandom random = new SecureRandom();
+    private final ChangeFeed feed = new ChangeFeed();
+    private final ExecutorService executor = TaskExecutors.newThreadPerTaskExecutor("replication");
+    private final AtomicInteger followers = new AtomicInteger();
+    private ServerSocket serverSocket;
+
+    public ReplicationServer(CriminalManager criminalManager, String bindAddress, int port, String secret) {
+        if (secret == null || secret.isEmpty()) {
+            throw new IllegalArgumentException("Replication needs a shared secret (-D" + SECRET_PROPERTY + ")");
+        }
+        this.criminalManager = criminalManager;
+        this.bindAddress = bindAddress;
+        this.port = port;
+        this.secret = secret.getBytes(StandardCharsets.UTF_8);
+    }
+
+    public void start() throws IOException {
+        serverSocket = new ServerSocket();
+        serverSocket.setReuseAddress(true);
+        serverSocket.bind(new InetSocketAddress(bindAddress, port));
+        criminalManager.setChangeListener(feed::publish);
+        Thread acceptor = new Thread(this::acceptLoop, "replication-acceptor");
+        acceptor.start();
+        System.out.println("Replication primary listening on " + bindAddress + ":" + serverSocket.getLocalPort()
+                + " (store " + Long.toHexString(criminalManager.getStoreId()) + ")");
+    }
+
+    public void stop() {
+        criminalManager.setChangeListener(null);
+        try {
+            if (serverSocket != null) serverSocket.close();
+        } catch (IOException e) {
+            System.err.println("Error closing replication socket: " + e.getMessage());
+        }
+        executor.shutdownNow();
+    }
+
+    public int getFollowerCount() {
+        return followers.get();
+    }
+
+    private void acceptLoop() {
+        while (!serverSocket.isClosed()) {
+            try {
+                Socket socket = serverSocket.accept();
+                executor.execute(() -> serve(socket));
+            } catch (SocketException e) {
+                break; // Server socket closed by stop()
+            } catch (IOException e) {
+                System.err.println("Error accepting follower connection: " + e.getMessage());
+            }
+        }
+    }
+
+    private void serve(Socket socket) {
+        String follower = String.valueOf(socket.getRemoteSocketAddress());
+        try (Socket s = socket;
+             DataInputStream in = new DataInputStream(s.getInputStream());
+             DataOutputStream out = new DataOutputStream(new BufferedOutputStream(s.getOutputStream()))) {
+            s.setSoTimeout(HEARTBEAT_MILLIS); // Only the handshake is read
+            s.setTcpNoDelay(true);
+            byte[] challenge = ReplicationChannel.newChallenge(random);
+            out.writeInt(ReplicationChannel.HANDSHAKE);
+            out.write(challenge);
+            out.flush();
+            if (in.readInt() != ReplicationChannel.HANDSHAKE) {
+                System.err.println("Rejected replication connection from " + follower + ": bad handshake");
+                return;
+            }
+            long storeId = in.readLong();
+            long sequence = in.readLong();
+            byte[] followerChallenge = new byte[ReplicationChannel.CHALLENGE_BYTES];
+            in.readFully(followerChallenge);
+            byte[] answer = new byte[ReplicationChannel.MAC_BYTES];
+            in.readFully(answer);
+            if (!MessageDigest.isEqual(answer,
+                    ReplicationChannel.followerProof(secret, challenge, followerChallenge, storeId, sequence))) {
+                System.err.println("Rejected replication connection from " + follower + ": wrong secret");
+                return;
+            }
+            out.write(ReplicationChannel.primaryProof(secret, challenge, followerChallenge, storeId, sequence));
+            out.flush();
+            ReplicationChannel channel = new ReplicationChannel(secret, challenge, followerChallenge, storeId, sequence);
+            System.out.println("Follower " + follower + " connected at " + Long.toHexString(storeId) + ":" + sequence
+                    + " (" + followers.incrementAndGet() + " following)");
+            try {
+                stream(out, channel, storeId, sequence);
+            } finally {
+                followers.decrementAndGet();
+            }
+        } catch (IOException e) {
+            System.out.println("Follower " + follower + " disconnected: " + e.getMessage());
+        } catch (RuntimeException e) {
+            System.err.println("Replication to " + follower + " failed: " + e);
+        }
+    }
+
+    // Sends deltas until the follower goes away; the cursor advances with each delta sent. New changes come
+    // from the feed, already encoded; the journal is only read to catch up.
+    private void stream(DataOutputStream out, ReplicationChannel channel, long storeId, long sequence) throws IOException {
+        long next = feed.position(); // Taken before catching up, so no batch journaled meanwhile is missed
+        boolean catchUp = true;
+        long lastSent = System.currentTimeMillis();
+        while (true) {
+            if (catchUp) {
+                CriminalDelta delta = criminalManager.exportDelta(storeId, sequence);
+                if (delta.isReset() || !delta.getRecords().isEmpty()) {
+                    channel.writeDelta(out, encode(delta));
+                    lastSent = System.currentTimeMillis();
+                    if (delta.isReset()) {
+                        System.out.println("Sent " + delta);
+                    }
+                }
+                storeId = delta.getStoreId();
+                sequence = delta.getToSequence();
+                catchUp = false;
+            }
+            Batch batch;
+            try {
+                batch = feed.await(next, Math.max(1, HEARTBEAT_MILLIS - (System.currentTimeMillis() - lastSent)));
+            } catch (InterruptedException e) {
+                return; // Server stopping
+            }
+            if (batch == null) {
+                channel.writeHeartbeat(out);
+                lastSent = System.currentTimeMillis();
+                continue;
+            }
+            if (batch == Batch.MISSED) { // Fell further behind than the feed holds
+                next = feed.position();
+                catchUp = true;
+                continue;
+            }
+            next++;
+            CriminalDelta delta = batch.delta;
+            if (delta.getStoreId() == storeId && delta.getToSequence() <= sequence) {
+                continue; // Already sent while catching up
+            }
+            if (delta.getStoreId() != storeId || delta.getFromSequence() != sequence) {
+                next = feed.position(); // The history changed under the stream
+                catchUp = true;
+                continue;
+            }
+            channel.writeDelta(out, batch.encoded());
+            lastSent = System.currentTimeMillis();
+            sequence = delta.getToSequence();
+        }
+    }
+
+    private static byte[] encode(CriminalDelta delta) {
+        ByteArrayOutputStream encoded = new ByteArrayOutputStream();
+        try {
+            RecordCodec.writeDelta(encoded, delta);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e); // ByteArrayOutputStream does not throw
+        }
+        return encoded.toByteArray();
+    }
+
+    // One journaled batch of changes, encoded for the followers by the first stream that sends it
+    private static final class Batch {
+        static final Batch MISSED = new Batch(null);
+
+        final CriminalDelta delta;
+        private byte[] encoded;
+
+        Batch(CriminalDelta delta) {
+            this.delta = delta;
+        }
+
+        synchronized byte[] encoded() {
+            if (encoded == null) {
+                encoded = encode(delta);
+            }
+            return encoded;
+        }
+    }
+
+    // The last FEED_BATCHES batches the journal appended, shared by every stream; publishing wakes the streams
+    // waiting for the next batch, so idle streams neither poll nor read the journal
+    private static final class ChangeFeed {
+        private final Batch[] batches = new Batch[FEED_BATCHES];
+        private long published = 0; // Batch n is in batches[n % FEED_BATCHES] while n >= published - FEED_BATCHES
+
+        synchronized void publish(long storeId, long fromSequence, List<byte[]> records) {
+            CriminalDelta delta = new CriminalDelta(storeId, fromSequence, fromSequence + records.size(), false, records);
+            batches[(int) (published % FEED_BATCHES)] = new Batch(delta);
+            published++;
+            notifyAll();
+        }
+
+        synchronized long position() {
+            return published;
+        }
+
+        // Batch n once published; null if none came within timeoutMillis, MISSED if it is no longer held
+        synchronized Batch await(long n, long timeoutMillis) throws InterruptedException {
+            long deadline = System.currentTimeMillis() + timeoutMillis;
+            while (n >= published) {
+                long left = deadline - System.currentTimeMillis();
+                if (left <= 0) {
+                    return null;
+                }
+                wait(left);
+            }
+            return n < published - FEED_BATCHES ? Batch.MISSED : batches[(int) (n % FEED_BATCHES)];
+        }
+    }
+}
@@ -0,0 +1,140 @@
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+// Report template parsed once into static UTF-8 byte segments and field slots.
+// Placeholders are written as {{slot}}; see Slot for the supported names. Field values are
+// HTML-escaped in a single pass straight into the output, and {{image}} is delegated to an ImageWriter.
+public class ReportTemplate {
+
+    public enum Slot {
+        ID("id"), NAME("name"), CRIME("crime"), LOCATION("location"),
+        COMPLAINANT("complainant"), FIR("fir"), IMAGE("image");
+
+        private final String placeholder;
+
+        Slot(String placeholder) {
+            this.placeholder = placeholder;
+        }
+
+        static Slot forPlaceholder(String name) {
+            for (Slot slot : values()) {
+                if (slot.placeholder.equals(name)) return slot;
+            }
+            return null;
+        }
+    }
+
+    public interface ImageWriter {
+        void writeImage(String imagePath, OutputStream out) throws IOException;
+    }
+
+    private final byte[][] segments; // segments[i] is written before slots[i]; the last one has no slot
+    private final Slot[] slots;
+
+    private ReportTemplate(List<byte[]> segments, List<Slot> slots) {
+        this.segments = segments.toArray(new byte[0][]);
+        this.slots = slots.toArray(new Slot[0]);
+    }
+
+    public static ReportTemplate parse(String template) {
+        List<byte[]> segments = new ArrayList<>();
+        List<Slot> slots = new ArrayList<>();
+        int pos = 0;
+        while (true) {
+            int open = template.indexOf("{{", pos);
+            if (open < 0) break;
+            int close = template.indexOf("}}", open + 2);
+            if (close < 0) {
+                throw new IllegalArgumentException("Unclosed placeholder at offset " + open);
+            }
+            String name = template.substring(open + 2, close).trim();
+            Slot slot = Slot.forPlaceholder(name);
+            if (slot == null) {
+                throw new IllegalArgumentException("Unknown placeholder {{" + name + "}}");
+            }
+            segments.add(template.substring(pos, open).getBytes(StandardCharsets.UTF_8));
+            slots.add(slot);
+            pos = close + 2;
+        }
+        segments.add(template.substring(pos).getBytes(StandardCharsets.UTF_8));
+        return new ReportTemplate(segments, slots);
+    }
+
+    public static ReportTemplate load(Path templateFile) throws IOException {
+        return parse(new String(Files.readAllBytes(templateFile), StandardCharsets.UTF_8));
+    }
+
+    public void render(Criminal criminal, OutputStream out, ImageWriter imageWriter) throws IOException {
+        byte[] scratch = new byte[ESCAPE_BUFFER_SIZE];
+        for (int i = 0; i < slots.length; i++) {
+            out.write(segments[i]);
+            switch (slots[i]) {
+                case ID: out.write(Integer.toString(criminal.getId()).getBytes(StandardCharsets.US_ASCII)); break;
+                case NAME: writeEscaped(criminal.getName(), out, scratch); break;
+                case CRIME: writeEscaped(criminal.getCrimeCommitted(), out, scratch); break;
+                case LOCATION: writeEscaped(criminal.getLocation(), out, scratch); break;
+                case COMPLAINANT: writeEscaped(criminal.getComplainantName(), out, scratch); break;
+                case FIR: writeEscaped(criminal.getFirDescription(), out, scratch); break;
+                case IMAGE: imageWriter.writeImage(criminal.getImagePath(), out); break;
+            }
+        }
+        out.write(segments[segments.length - 1]);
+    }
+
+    // --- Escaping ---
+
+    private static final int ESCAPE_BUFFER_SIZE = 4096;
+    private static final byte[] AMP = "&amp;".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] LT = "&lt;".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] GT = "&gt;".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] QUOT = "&quot;".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] APOS = "&#39;".getBytes(StandardCharsets.US_ASCII);
+
+    // HTML-escapes and UTF-8 encodes text in one pass, flushing the scratch buffer as it fills
+    static void writeEscaped(String text, OutputStream out, byte[] scratch) throws IOException {
+        if (text == null) return;
+        int n = 0;
+        for (int i = 0; i < text.length(); i++) {
+            if (n > scratch.length - 8) { // Room for the longest entity or UTF-8 sequence
+                out.write(scratch, 0, n);
+                n = 0;
+            }
+            char c = text.charAt(i);
+            byte[] entity = null;
+            switch (c) {
+                case '&': entity = AMP; break;
+                case '<': entity = LT; break;
+                case '>': entity = GT; break;
+                case '"': entity = QUOT; break;
+                case '\'': entity = APOS; break;
+            }
+            if (entity != null) {
+                System.arraycopy(entity, 0, scratch, n, entity.length);
+                n += entity.length;
+            } else if (c < 0x80) {
+                scratch[n++] = (byte) c;
+            } else if (c < 0x800) {
+                scratch[n++] = (byte) (0xC0 | (c >> 6));
+                scratch[n++] = (byte) (0x80 | (c & 0x3F));
+            } else if (Character.isHighSurrogate(c) && i + 1 < text.length() && Character.isLowSurrogate(text.charAt(i + 1))) {
+                int cp = Character.toCodePoint(c, text.charAt(++i));
+                scratch[n++] = (byte) (0xF0 | (cp >> 18));
+                scratch[n++] = (byte) (0x80 | ((cp >> 12) & 0x3F));
+                scratch[n++] = (byte) (0x80 | ((cp >> 6) & 0x3F));
+                scratch[n++] = (byte) (0x80 | (cp & 0x3F));
+            } else if (Character.isSurrogate(c)) {
+                scratch[n++] = '?'; // Unpaired surrogate, same replacement the JDK encoder uses
+            } else {
+                scratch[n++] = (byte) (0xE0 | (c >> 12));
+                scratch[n++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+                scratch[n++] = (byte) (0x80 | (c & 0x3F));
+            }
+        }
+        out.write(scratch, 0, n);
+    }
+}
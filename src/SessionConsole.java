@@ -0,0 +1,86 @@
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.Locale;
+
+// Per-thread System.out and System.err for remote sessions. The managers report what they did on the
+// standard streams; once install() has run, anything printed on a thread bound to a session goes to that
+// session's stream, and everything else still goes to the server console. Each call picks its stream and
+// locks only that one, so a client that stops reading never blocks another thread's output.
+final class SessionConsole {
+    private static final ThreadLocal<PrintStream> SESSION = new ThreadLocal<>();
+    private static PrintStream consoleOut;
+    private static PrintStream consoleErr;
+
+    private SessionConsole() {
+    }
+
+    static synchronized void install() {
+        if (consoleOut != null) return;
+        consoleOut = System.out;
+        consoleErr = System.err;
+        System.setOut(new Router(consoleOut));
+        System.setErr(new Router(consoleErr));
+    }
+
+    static void bind(PrintStream session) {
+        SESSION.set(session);
+    }
+
+    static void unbind() {
+        SESSION.remove();
+    }
+
+    // Whether the current thread serves a remote session, which has no screen on this host
+    static boolean isRemote() {
+        return SESSION.get() != null;
+    }
+
+    private static final class Router extends PrintStream {
+        private final PrintStream console;
+
+        Router(PrintStream console) {
+            super(OutputStream.nullOutputStream());
+            this.console = console;
+        }
+
+        private PrintStream target() {
+            PrintStream session = SESSION.get();
+            return session != null ? session : console;
+        }
+
+        @Override public void write(int b) { target().write(b); }
+        @Override public void write(byte[] buf, int off, int len) { target().write(buf, off, len); }
+        @Override public void flush() { target().flush(); }
+        @Override public void close() { flush(); } // The console and the sessions are closed by their owners
+        @Override public boolean checkError() { return target().checkError(); }
+
+        @Override public void print(boolean b) { target().print(b); }
+        @Override public void print(char c) { target().print(c); }
+        @Override public void print(int i) { target().print(i); }
+        @Override public void print(long l) { target().print(l); }
+        @Override public void print(float f) { target().print(f); }
+        @Override public void print(double d) { target().print(d); }
+        @Override public void print(char[] s) { target().print(s); }
+        @Override public void print(String s) { target().print(s); }
+        @Override public void print(Object obj) { target().print(obj); }
+
+        @Override public void println() { target().println(); }
+        @Override public void println(boolean x) { target().println(x); }
+        @Override public void println(char x) { target().println(x); }
+        @Override public void println(int x) { target().println(x); }
+        @Override public void println(long x) { target().println(x); }
+        @Override public void println(float x) { target().println(x); }
+        @Override public void println(double x) { target().println(x); }
+        @Override public void println(char[] x) { target().println(x); }
+        @Override public void println(String x) { target().println(x); }
+        @Override public void println(Object x) { target().println(x); }
+
+        @Override public PrintStream printf(String format, Object... args) { target().printf(format, args); return this; }
+        @Override public PrintStream printf(Locale l, String format, Object... args) { target().printf(l, format, args); return this; }
+        @Override public PrintStream format(String format, Object... args) { target().format(format, args); return this; }
+        @Override public PrintStream format(Locale l, String format, Object... args) { target().format(l, format, args); return this; }
+        @Override public PrintStream append(CharSequence csq) { target().append(csq); return this; }
+        @Override public PrintStream append(CharSequence csq, int start, int end) { target().append(csq, start, end); return this; }
+        @Override public PrintStream append(char c) { target().append(c); return this; }
+    }
+}
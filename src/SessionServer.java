@@ -0,0 +1,103 @@
+import java.io.IOException;
+import java.io.PrintStream;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.nio.charset.StandardCharsets;
+import java.util.NoSuchElementException;
+import java.util.Scanner;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Plain-text TCP server (e.g. "telnet host 2323") running the login and menu flow of LoginSession for
+// each connection on its own thread - a virtual thread where the JVM has them - with all sessions
+// sharing one set of managers. Idle connections are closed after idleTimeoutMillis. Logins cross the
+// connection in clear text, so the server listens on loopback unless given another bind address; reach it
+// from elsewhere through an SSH or TLS tunnel. What the managers print for a session goes to that session.
+public class SessionServer {
+    public static final String DEFAULT_BIND_ADDRESS = "127.0.0.1";
+
+    private final CriminalManager criminalManager;
+    private final OperatorManager operatorManager;
+    private final String bindAddress;
+    private final int port;
+    private final int idleTimeoutMillis;
+    private final ExecutorService executor = TaskExecutors.newThreadPerTaskExecutor("session");
+    private final AtomicInteger activeSessions = new AtomicInteger();
+    private ServerSocket serverSocket;
+
+    public SessionServer(CriminalManager criminalManager, OperatorManager operatorManager, int port, int idleTimeoutMillis) {
+        this(criminalManager, operatorManager, DEFAULT_BIND_ADDRESS, port, idleTimeoutMillis);
+    }
+
+    public SessionServer(CriminalManager criminalManager, OperatorManager operatorManager, String bindAddress,
+                         int port, int idleTimeoutMillis) {
+        this.criminalManager = criminalManager;
+        this.operatorManager = operatorManager;
+        this.bindAddress = bindAddress;
+        this.port = port;
+        this.idleTimeoutMillis = idleTimeoutMillis;
+    }
+
+    public void start() throws IOException {
+        serverSocket = new ServerSocket();
+        serverSocket.setReuseAddress(true);
+        serverSocket.bind(new InetSocketAddress(bindAddress, port), 512);
+        SessionConsole.install();
+        Thread acceptor = new Thread(this::acceptLoop, "session-acceptor");
+        acceptor.start();
+        System.out.println("Session server listening on " + bindAddress + ":" + serverSocket.getLocalPort()
+                + (TaskExecutors.virtualThreadsAvailable() ? " (virtual threads)" : ""));
+    }
+
+    public void stop() {
+        try {
+            if (serverSocket != null) serverSocket.close();
+        } catch (IOException e) {
+            System.err.println("Error closing session server socket: " + e.getMessage());
+        }
+        executor.shutdownNow();
+    }
+
+    public int getActiveSessions() {
+        return activeSessions.get();
+    }
+
+    private void acceptLoop() {
+        while (!serverSocket.isClosed()) {
+            try {
+                Socket socket = serverSocket.accept();
+                executor.execute(() -> serve(socket));
+            } catch (SocketException e) {
+                break; // Server socket closed by stop()
+            } catch (IOException e) {
+                System.err.println("Error accepting session connection: " + e.getMessage());
+            }
+        }
+    }
+
+    private void serve(Socket socket) {
+        String client = String.valueOf(socket.getRemoteSocketAddress());
+        System.out.println("Session opened from " + client + " (" + activeSessions.incrementAndGet() + " active)");
+        try (Socket s = socket;
+             Scanner scanner = new Scanner(s.getInputStream(), StandardCharsets.UTF_8);
+             // Unbuffered underneath, so prompts without a newline reach the client at once
+             PrintStream out = new PrintStream(s.getOutputStream(), true, StandardCharsets.UTF_8)) {
+            s.setSoTimeout(idleTimeoutMillis); // Scanner sees a read timeout as end of input
+            s.setTcpNoDelay(true);
+            SessionConsole.bind(out);
+            try {
+                new LoginSession(criminalManager, operatorManager, scanner, out).run();
+            } finally {
+                SessionConsole.unbind();
+            }
+        } catch (NoSuchElementException | IllegalStateException e) {
+            // Client disconnected or went idle mid-session
+        } catch (IOException | RuntimeException e) {
+            System.err.println("Session from " + client + " failed: " + e);
+        } finally {
+            System.out.println("Session closed from " + client + " (" + activeSessions.decrementAndGet() + " active)");
+        }
+    }
+}
@@ -0,0 +1,109 @@
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Stream;
+
+// Measures durable add throughput of a ShardedCriminalManager at 1, 2, 4 ... maxShards shards, with the same
+// number of writer threads each time. Every add is journaled and synced by its shard, so throughput grows
+// with the number of shards syncing in parallel. Each step uses a scratch directory that is deleted after it.
+public class ShardWriteBenchmark {
+    private static final String SCRATCH_DIR = "data/shard-bench";
+
+    private final int maxShards;
+    private final int writers;
+    private final long stepMillis;
+
+    public ShardWriteBenchmark(int maxShards, int writers, long stepMillis) {
+        if (maxShards < 1 || writers < 1 || stepMillis < 1) {
+            throw new IllegalArgumentException("Shard count, writer count and step duration must be positive");
+        }
+        this.maxShards = maxShards;
+        this.writers = writers;
+        this.stepMillis = stepMillis;
+    }
+
+    public void run() {
+        System.out.println("\n------- Shard Write Benchmark -------");
+        System.out.printf("%d writers, %d ms per step%n", writers, stepMillis);
+        double baseline = 0;
+        int shardCount = 1;
+        while (true) {
+            Path dir = Paths.get(SCRATCH_DIR, shardCount + "-shards");
+            double addsPerSecond;
+            try {
+                addsPerSecond = runStep(new ShardedCriminalManager(dir.toString(), shardCount));
+            } finally {
+                deleteQuietly(dir);
+            }
+            if (shardCount == 1) baseline = addsPerSecond;
+            System.out.printf("Shards: %3d  throughput: %10.0f adds/s  speedup: %5.2fx%n",
+                    shardCount, addsPerSecond, addsPerSecond / Math.max(baseline, 1));
+            if (shardCount == maxShards) break;
+            shardCount = Math.min(shardCount * 2, maxShards);
+        }
+        deleteQuietly(Paths.get(SCRATCH_DIR));
+    }
+
+    private double runStep(ShardedCriminalManager manager) {
+        LongAdder adds = new LongAdder();
+        AtomicBoolean running = new AtomicBoolean(true);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> workers = new ArrayList<>();
+
+        for (int t = 0; t < writers; t++) {
+            workers.add(new Thread(() -> {
+                awaitQuietly(start);
+                while (running.get()) {
+                    int id = manager.reserveIds(1);
+                    if (manager.addCriminals(List.of(new Criminal(id, "Benchmark Record", "Benchmark", null, null, null, null)))) {
+                        adds.increment();
+                    }
+                }
+            }, "bench-writer-" + t));
+        }
+
+        workers.forEach(Thread::start);
+        long begin = System.nanoTime();
+        start.countDown();
+        try {
+            TimeUnit.MILLISECONDS.sleep(stepMillis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        running.set(false);
+        for (Thread worker : workers) {
+            try {
+                worker.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        double seconds = (System.nanoTime() - begin) / 1_000_000_000.0;
+        return adds.sum() / seconds;
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void deleteQuietly(Path dir) {
+        if (!Files.exists(dir)) return;
+        try (Stream<Path> paths = Files.walk(dir)) {
+            paths.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        } catch (IOException e) {
+            System.err.println("Error deleting benchmark directory " + dir + ": " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,263 @@
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+// Criminal records hash-partitioned by id over independent CriminalManager shards, each with its own
+// snapshot, journal, locks and group-commit thread under <baseDir>/shard-<n>/, so writes to different shards
+// never wait for each other. Lookups and deletes by id go to one shard; name and field searches, listings and
+// statistics run on every shard in parallel and are merged, in id order. Ids are allocated here, above every
+// shard's records. The shard count is fixed when the directory is created (recorded in <baseDir>/shards).
+// Batches spanning shards are not atomic: each shard's part becomes durable on its own.
+// Only "java Main shard-bench" runs on it so far. The menus, serve, import and replication use one
+// CriminalManager: a replication cursor is one journal's change sequence, and paged search, image upload and
+// read-only mode have no sharded counterpart yet.
+public class ShardedCriminalManager {
+    private static final Comparator<Criminal> BY_ID = Comparator.comparingInt(Criminal::getId);
+
+    private final CriminalManager[] shards;
+    private final AtomicInteger nextId = new AtomicInteger(1);
+    private final ExecutorService executor = TaskExecutors.newThreadPerTaskExecutor("shard-query");
+
+    public ShardedCriminalManager(String baseDirPath, int shardCount) {
+        if (shardCount < 1) {
+            throw new IllegalArgumentException("Shard count must be positive");
+        }
+        checkShardCount(Paths.get(baseDirPath), shardCount);
+        shards = new CriminalManager[shardCount];
+        ImageStore images = new ImageStore("images/", this::imagePaths);
+        for (int i = 0; i < shardCount; i++) {
+            shards[i] = new CriminalManager(baseDirPath + "/shard-" + i, images);
+        }
+        for (CriminalManager shard : shards) {
+            nextId.accumulateAndGet(shard.nextFreeId(), Math::max);
+        }
+    }
+
+    // Records are routed by id, so reopening with another count would lose track of them
+    private static void checkShardCount(Path baseDir, int shardCount) {
+        Path countFile = baseDir.resolve("shards");
+        try {
+            if (Files.exists(countFile)) {
+                int existing = Integer.parseInt(new String(Files.readAllBytes(countFile), StandardCharsets.US_ASCII).trim());
+                if (existing != shardCount) {
+                    throw new IllegalStateException(baseDir + " holds " + existing + " shards, not " + shardCount
+                            + ". Open it with " + existing + " shards; resharding is not supported.");
+                }
+            } else {
+                Files.createDirectories(baseDir);
+                AtomicFile.write(countFile, out -> out.write((shardCount + "\n").getBytes(StandardCharsets.US_ASCII)));
+            }
+        } catch (IOException | NumberFormatException e) {
+            throw new IllegalStateException("Cannot read the shard count in " + countFile + ": " + e.getMessage(), e);
+        }
+    }
+
+    public int getShardCount() {
+        return shards.length;
+    }
+
+    // Fibonacci hashing, so runs of consecutive ids spread over every shard
+    int shardOf(int id) {
+        return (int) (((id * 0x9E3779B97F4A7C15L) >>> 32) % shards.length);
+    }
+
+    private CriminalManager shardFor(int id) {
+        return shards[shardOf(id)];
+    }
+
+    // --- CRUD Operations ---
+
+    // Headless: the photo is copied from imageFile
+    public boolean addCriminal(String name, String crime, String location, String complainant, String firDesc, Path imageFile) {
+        return addCriminalAsync(name, crime, location, complainant, firDesc, shards[0].attachImage(imageFile)).join();
+    }
+
+    // Adds the record once the image attachment completes; a null path (cancelled) or a failed attach adds nothing
+    public CompletableFuture<Boolean> addCriminalAsync(String name, String crime, String location, String complainant,
+                                                       String firDesc, CompletableFuture<String> image) {
+        return image.handle(CriminalManager::storedImagePath).thenCompose(targetImagePath -> {
+            if (targetImagePath == null) {
+                System.out.println("Image selection cancelled or failed. Criminal not added.");
+                return CompletableFuture.completedFuture(false);
+            }
+            Criminal newCriminal = new Criminal(nextId.getAndIncrement(), name, crime, location, complainant, firDesc, targetImagePath);
+            return addCriminalsAsync(Collections.singletonList(newCriminal)).thenApply(added -> {
+                if (!added) {
+                    shardFor(newCriminal.getId()).discardImage(targetImagePath, newCriminal.getId());
+                }
+                return added;
+            });
+        });
+    }
+
+    // Reserves a contiguous block of ids for records built outside addCriminal (e.g. bulk import)
+    public int reserveIds(int count) {
+        return nextId.getAndAdd(count);
+    }
+
+    public boolean addCriminals(List<Criminal> batch) {
+        return addCriminalsAsync(batch).join();
+    }
+
+    // Each shard journals its part of the batch concurrently; completes with true once every part is durable
+    public CompletableFuture<Boolean> addCriminalsAsync(List<Criminal> batch) {
+        Map<Integer, List<Criminal>> byShard = new HashMap<>();
+        for (Criminal criminal : batch) {
+            byShard.computeIfAbsent(shardOf(criminal.getId()), shard -> new ArrayList<>()).add(criminal);
+            nextId.accumulateAndGet(criminal.getId() + 1, Math::max);
+        }
+        CompletableFuture<Boolean> all = CompletableFuture.completedFuture(true);
+        for (Map.Entry<Integer, List<Criminal>> part : byShard.entrySet()) {
+            all = all.thenCombine(shards[part.getKey()].addCriminalsAsync(part.getValue()), Boolean::logicalAnd);
+        }
+        return all;
+    }
+
+    public boolean deleteCriminal(int id) {
+        return deleteCriminalAsync(id).join();
+    }
+
+    public CompletableFuture<Boolean> deleteCriminalAsync(int id) {
+        return shardFor(id).deleteCriminalAsync(id);
+    }
+
+    // --- Queries ---
+
+    public Optional<Criminal> findCriminalById(int id) {
+        return shardFor(id).findCriminalById(id);
+    }
+
+    public List<Criminal> findCriminalByName(String name) {
+        return mergeById(fanOut(shard -> shard.findCriminalByName(name)));
+    }
+
+    public List<Criminal> findCriminals(CriminalQuery query) {
+        return mergeById(fanOut(shard -> shard.findCriminals(query)));
+    }
+
+    public List<Criminal> findCriminalsInRange(int fromId, int toId) {
+        return mergeById(fanOut(shard -> shard.findCriminalsInRange(fromId, toId)));
+    }
+
+    public int countCriminals() {
+        return fanOut(CriminalManager::countCriminals).stream().mapToInt(Integer::intValue).sum();
+    }
+
+    // Every record in id order; listings should page with listCriminalsAfter instead
+    public List<Criminal> viewCriminals() {
+        return mergeById(fanOut(CriminalManager::viewCriminals));
+    }
+
+    // Keyset page across shards. Ids are allocated densely over all shards but sparsely within each, so the
+    // ids after the cursor are probed in windows, each window as one lookup per shard holding some of its ids.
+    // When deletes have left too many gaps, every shard returns its own next page from a bounded scan instead,
+    // and those are merged.
+    public List<Criminal> listCriminalsAfter(int afterId, int pageSize) {
+        if (pageSize < 1) {
+            throw new IllegalArgumentException("Page size must be positive");
+        }
+        List<Criminal> page = new ArrayList<>(pageSize);
+        int maxId = nextId.get() - 1;
+        int id = Math.max(afterId, 0);
+        long budget = CriminalManager.PROBE_BUDGET + 4L * pageSize;
+        while (page.size() < pageSize && id < maxId) {
+            int window = Math.min(pageSize - page.size(), maxId - id);
+            if (budget < window) {
+                int cursor = id;
+                int limit = pageSize - page.size();
+                List<Criminal> rest = mergeById(fanOut(shard -> shard.scanCriminalsAfter(cursor, limit)));
+                page.addAll(rest.size() > limit ? rest.subList(0, limit) : rest);
+                break;
+            }
+            budget -= window;
+            page.addAll(probe(id + 1, window));
+            id += window;
+        }
+        return page;
+    }
+
+    // The records with ids first .. first + count - 1, in id order
+    private List<Criminal> probe(int first, int count) {
+        Map<Integer, List<Integer>> byShard = new HashMap<>();
+        for (int i = 0; i < count; i++) {
+            byShard.computeIfAbsent(shardOf(first + i), shard -> new ArrayList<>()).add(first + i);
+        }
+        List<List<Criminal>> parts = new ArrayList<>(byShard.size());
+        byShard.forEach((shard, ids) -> parts.add(shards[shard].findCriminalsByIds(ids.stream().mapToInt(Integer::intValue).toArray())));
+        return mergeById(parts);
+    }
+
+    // --- Statistics ---
+
+    // Exact: shard top-K lists cannot be merged, so every shard's full counts are summed first
+    public List<CriminalStatistics.Count> topCounts(CriminalStatistics.Field field, int k) {
+        List<CriminalStatistics.Count> merged = countBy(field);
+        return k > 0 && merged.size() > k ? new ArrayList<>(merged.subList(0, k)) : merged;
+    }
+
+    // Shards may show a group under different spellings, so groups are merged the way each shard forms them
+    public List<CriminalStatistics.Count> countBy(CriminalStatistics.Field field) {
+        List<CriminalStatistics.Count> all = new ArrayList<>();
+        fanOut(shard -> shard.countBy(field)).forEach(all::addAll);
+        return CriminalStatistics.merge(all);
+    }
+
+    // Values repeat across shards, so this is the size of the merged counts rather than a sum
+    public int distinctCount(CriminalStatistics.Field field) {
+        return (int) countBy(field).stream().filter(count -> count.getValue() != null).count();
+    }
+
+    // --- Maintenance ---
+
+    public boolean compact() {
+        return fanOut(CriminalManager::compact).stream().allMatch(Boolean::booleanValue);
+    }
+
+    // --- Fan-out ---
+
+    // Runs the query on every shard in parallel; results are in shard order
+    private <T> List<T> fanOut(Function<CriminalManager, T> query) {
+        if (shards.length == 1) {
+            return Collections.singletonList(query.apply(shards[0]));
+        }
+        List<CompletableFuture<T>> pending = new ArrayList<>(shards.length);
+        for (CriminalManager shard : shards) {
+            pending.add(CompletableFuture.supplyAsync(() -> query.apply(shard), executor));
+        }
+        List<T> results = new ArrayList<>(shards.length);
+        for (CompletableFuture<T> result : pending) {
+            results.add(result.join());
+        }
+        return results;
+    }
+
+    private static List<Criminal> mergeById(List<List<Criminal>> parts) {
+        List<Criminal> merged = new ArrayList<>(parts.stream().mapToInt(List::size).sum());
+        parts.forEach(merged::addAll);
+        merged.sort(BY_ID);
+        return merged;
+    }
+
+    // Every shard's image references, so a photo shared by records on different shards is only deleted
+    // when the last of them goes
+    private Iterable<String> imagePaths() {
+        List<String> paths = new ArrayList<>();
+        for (CriminalManager shard : shards) {
+            shard.imagePaths().forEach(paths::add);
+        }
+        return paths;
+    }
+}
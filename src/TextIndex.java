@@ -0,0 +1,68 @@
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+// Full-text index over free text (FIR descriptions): token -> ids of records containing it.
+public class TextIndex {
+    private final Map<String, PostingList> postings = new HashMap<>();
+
+    // Lower-cased runs of letters/digits; single characters are dropped as noise
+    public static Set<String> tokenize(String text) {
+        Set<String> tokens = new LinkedHashSet<>();
+        if (text == null) return tokens;
+        String lower = text.toLowerCase(Locale.ROOT);
+        int start = -1;
+        for (int i = 0; i <= lower.length(); i++) {
+            boolean wordChar = i < lower.length() && Character.isLetterOrDigit(lower.charAt(i));
+            if (wordChar && start < 0) {
+                start = i;
+            } else if (!wordChar && start >= 0) {
+                if (i - start > 1) {
+                    tokens.add(lower.substring(start, i));
+                }
+                start = -1;
+            }
+        }
+        return tokens;
+    }
+
+    public void add(int id, String text) {
+        for (String token : tokenize(text)) {
+            postings.computeIfAbsent(token, k -> new PostingList()).add(id);
+        }
+    }
+
+    public void remove(int id, String text) {
+        for (String token : tokenize(text)) {
+            PostingList list = postings.get(token);
+            if (list != null && list.remove(id) && list.size() == 0) {
+                postings.remove(token);
+            }
+        }
+    }
+
+    // Ids containing every one of the given tokens
+    public int[] lookupAll(Set<String> tokens) {
+        List<PostingList> lists = new ArrayList<>();
+        for (String token : tokens) {
+            PostingList list = postings.get(token);
+            if (list == null) return new int[0];
+            lists.add(list);
+        }
+        return PostingList.intersectAll(lists);
+    }
+
+    public boolean contains(String token, int id) {
+        PostingList list = postings.get(token);
+        return list != null && list.contains(id);
+    }
+
+    public int documentFrequency(String token) {
+        PostingList list = postings.get(token);
+        return list == null ? 0 : list.size();
+    }
+}